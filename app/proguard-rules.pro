@@ -18,4 +18,15 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# Strip verbose/debug logging from release builds. R8 removes these calls together with any
+# argument computation that has no other side effects, so the alert hot path pays nothing for them.
+-assumenosideeffects class com.example.sikad_notifier.AppLog {
+    public static void v(...);
+    public static void d(...);
+}
+-assumenosideeffects class android.util.Log {
+    public static int v(...);
+    public static int d(...);
+}
@@ -0,0 +1,46 @@
+package com.example.sikad_notifier;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Debug-only stand-in for FCM: feeds a fake push payload through the same path as
+ * {@link AlertMessagingService}, so push delivery can be exercised without a backend.
+ *
+ * adb shell am broadcast -a com.example.sikad_notifier.debug.FAKE_ALERT \
+ *     -p com.example.sikad_notifier --es alertId test-1 --es bikeId BIKE-001 \
+ *     --es message "Test alert" --es timestamp $(date +%s000)
+ */
+public class FakeAlertMessageReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "FakeAlertMessageReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Map<String, String> data = new HashMap<>();
+        Bundle extras = intent.getExtras();
+        if (extras != null) {
+            for (String key : extras.keySet()) {
+                Object value = extras.get(key);
+                if (value != null) data.put(key, value.toString());
+            }
+        }
+
+        // AlertMessagingService.dispatch blocks until processed, so keep it off the main thread
+        PendingResult pending = goAsync();
+        Context app = context.getApplicationContext();
+        new Thread(() -> {
+            try {
+                boolean handled = AlertMessagingService.dispatch(app, data);
+                AppLog.d(TAG, "🧪 Fake alert {}", handled ? "dispatched" : "rejected");
+            } finally {
+                pending.finish();
+            }
+        }, "fake-alert").start();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.sikad_notifier;
+
+/**
+ * A bike alert as it moves through the processing pipeline.
+ */
+public class Alert {
+
+    public final String id;
+    public final String bikeId;
+    public final String message;
+    public final long timestamp;
+    // the source's own alert type, "" if it has none (input to AlertClassifier)
+    public final String type;
+    // replayed from the backlog by AlertBackfill: logged, but only notified through the backlog summary
+    public final boolean backfill;
+
+    public Alert(String id, String bikeId, String message, long timestamp) {
+        this(id, bikeId, message, timestamp, "", false);
+    }
+
+    public Alert(String id, String bikeId, String message, long timestamp, String type) {
+        this(id, bikeId, message, timestamp, type, false);
+    }
+
+    private Alert(String id, String bikeId, String message, long timestamp, String type, boolean backfill) {
+        this.id = id;
+        this.bikeId = bikeId;
+        this.message = message;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.backfill = backfill;
+    }
+
+    public Alert asBackfill() {
+        return backfill ? this : new Alert(id, bikeId, message, timestamp, type, true);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.sikad_notifier;
+
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handles the Resolve / Resolve all actions on alert notifications.
+ *
+ * The Firestore writes run asynchronously under {@link #goAsync()}. If the server has not
+ * acknowledged them within {@link #FINISH_TIMEOUT_MS}, the broadcast is finished anyway: the
+ * writes are already in Firestore's local queue and are sent when the device is back online.
+ */
+public class AlertActionReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "AlertActionReceiver";
+
+    public static final String ACTION_RESOLVE = "com.example.sikad_notifier.action.RESOLVE";
+    public static final String ACTION_RESOLVE_BIKE = "com.example.sikad_notifier.action.RESOLVE_BIKE";
+
+    private static final String EXTRA_ALERT_ID = "alertId";
+    private static final String EXTRA_BIKE_ID = "bikeId";
+    private static final String EXTRA_NOTIFICATION_ID = "notificationId";
+
+    // stay well inside the ~10s a receiver may hold its broadcast
+    private static final long FINISH_TIMEOUT_MS = 8000L;
+
+    // action intents for a bike notification; request codes keep each notification's intents distinct
+    public static PendingIntent resolveIntent(Context context, int notificationId, String bikeId, String alertId) {
+        Intent intent = new Intent(context, AlertActionReceiver.class)
+                .setAction(ACTION_RESOLVE)
+                .putExtra(EXTRA_NOTIFICATION_ID, notificationId)
+                .putExtra(EXTRA_BIKE_ID, bikeId)
+                .putExtra(EXTRA_ALERT_ID, alertId);
+        return PendingIntent.getBroadcast(context, notificationId * 2, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    public static PendingIntent resolveBikeIntent(Context context, int notificationId, String bikeId) {
+        Intent intent = new Intent(context, AlertActionReceiver.class)
+                .setAction(ACTION_RESOLVE_BIKE)
+                .putExtra(EXTRA_NOTIFICATION_ID, notificationId)
+                .putExtra(EXTRA_BIKE_ID, bikeId);
+        return PendingIntent.getBroadcast(context, notificationId * 2 + 1, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        String bikeId = intent.getStringExtra(EXTRA_BIKE_ID);
+        String alertId = intent.getStringExtra(EXTRA_ALERT_ID);
+        int notificationId = intent.getIntExtra(EXTRA_NOTIFICATION_ID, -1);
+
+        AlertResolver resolver = new AlertResolver(FirebaseFirestore.getInstance());
+        Task<Integer> task;
+        if (ACTION_RESOLVE.equals(action) && alertId != null) {
+            task = resolver.resolveAlert(alertId);
+        } else if (ACTION_RESOLVE_BIKE.equals(action) && bikeId != null) {
+            task = resolver.resolveBike(bikeId);
+        } else {
+            AppLog.w(TAG, "⚠️ Ignoring action {}", action);
+            return;
+        }
+
+        // the admin acted on it: take the notification away right away
+        if (notificationId >= 0) {
+            context.getSystemService(NotificationManager.class).cancel(notificationId);
+        }
+
+        PendingResult pending = goAsync();
+        AtomicBoolean finished = new AtomicBoolean(false);
+        Runnable finish = () -> {
+            if (finished.compareAndSet(false, true)) pending.finish();
+        };
+        Handler handler = new Handler(Looper.getMainLooper());
+        handler.postDelayed(() -> {
+            if (!finished.get()) AppLog.w(TAG, "⚠️ Resolve for {} still pending, will sync later", bikeId);
+            finish.run();
+        }, FINISH_TIMEOUT_MS);
+
+        task.addOnCompleteListener(t -> {
+            if (t.isSuccessful()) {
+                AppLog.i(TAG, "✅ Resolved {} alerts for {}", t.getResult(), bikeId);
+            } else {
+                AppLog.e(TAG, "❌ Failed to resolve alerts for {}", bikeId, t.getException());
+            }
+            handler.removeCallbacksAndMessages(null);
+            finish.run();
+        });
+    }
+}
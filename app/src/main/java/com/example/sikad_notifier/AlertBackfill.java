@@ -0,0 +1,161 @@
+package com.example.sikad_notifier;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catches up on alerts raised while this device was not listening (reboot, killed service,
+ * offline, dropped push messages) before live delivery takes over.
+ *
+ * Pages through everything past the watermark in chunks of {@link #PAGE_SIZE}, oldest first,
+ * one {@link MonitoringScope} shard at a time, and feeds it through the engine as backfill: each
+ * alert is deduped, counted per bike and logged, but none of them sounds or gets a notification of
+ * its own. Once the backlog is through, one summary notification covers all of it and the waiting
+ * callers (the live listener) are released. A backlog of at most {@link #LIVE_THRESHOLD} alerts is
+ * simply notified as usual.
+ */
+public class AlertBackfill {
+
+    private static final String TAG = "AlertBackfill";
+
+    static final int PAGE_SIZE = 250;
+    // 10k alerts per shard, so a busy shard cannot starve the others; whatever is left after that
+    // reaches the live listener as ordinary alerts
+    private static final int MAX_PAGES_PER_SHARD = 40;
+    private static final int LIVE_THRESHOLD = 5;
+
+    private static final long QUERY_TIMEOUT_SECONDS = 30L;
+    private static final long DRAIN_TIMEOUT_MS = 15_000L;
+
+    /**
+     * Per-bike counts of one backfill run, filled by the engine's route stage.
+     */
+    public static class Tally {
+        public int total = 0;
+        public final Map<String, Integer> countByBike = new HashMap<>();
+        public final Map<String, String> lastMessageByBike = new HashMap<>();
+        public long newestTs = 0L;
+
+        synchronized void record(Alert alert) {
+            total++;
+            Integer count = countByBike.get(alert.bikeId);
+            countByBike.put(alert.bikeId, count == null ? 1 : count + 1);
+            lastMessageByBike.put(alert.bikeId, alert.message);
+            newestTs = Math.max(newestTs, alert.timestamp);
+        }
+    }
+
+    private final AlertEngine engine;
+    private final Context context;
+    private final FirebaseFirestore db;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // callbacks waiting for the current run to finish (guarded by this)
+    private final List<Runnable> waiters = new ArrayList<>();
+    private boolean running = false;
+    private Tally tally = new Tally();
+
+    AlertBackfill(Context context, AlertEngine engine, FirebaseFirestore db) {
+        this.context = context;
+        this.engine = engine;
+        this.db = db;
+    }
+
+    // start a run (or join the one in progress); onDone runs on the main thread when it is over
+    public synchronized void run(Runnable onDone) {
+        if (onDone != null) waiters.add(onDone);
+        if (running) return;
+        running = true;
+        tally = new Tally();
+        executor.execute(this::backfill);
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    // route stage: count a backfilled alert towards the summary
+    void record(Alert alert) {
+        Tally current;
+        synchronized (this) {
+            current = tally;
+        }
+        current.record(alert);
+    }
+
+    private void backfill() {
+        int fetched = 0;
+        long startedAt = System.currentTimeMillis();
+        try {
+            long since = engine.watermark().get();
+            List<MonitoringScope.Shard> shards = MonitoringScope.load(context).shards();
+            for (MonitoringScope.Shard shard : shards) {
+                DocumentSnapshot last = null;
+                for (int pages = 0; pages < MAX_PAGES_PER_SHARD; pages++) {
+                    Query query = pageQuery(shard, since);
+                    if (last != null) query = query.startAfter(last);
+                    QuerySnapshot snapshot = Tasks.await(query.get(), QUERY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    List<DocumentSnapshot> docs = snapshot.getDocuments();
+
+                    // a handful of missed alerts is not a backlog: notify them like live ones
+                    boolean quiet = !(shards.size() == 1 && last == null && docs.size() <= LIVE_THRESHOLD);
+                    for (DocumentSnapshot doc : docs) engine.submit(doc, quiet);
+                    fetched += docs.size();
+
+                    if (docs.size() < PAGE_SIZE) break;
+                    last = docs.get(docs.size() - 1);
+                }
+            }
+            engine.drain(DRAIN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            AppLog.w(TAG, "⚠️ Backfill interrupted after {} alerts", fetched);
+        } catch (Exception e) {
+            // the live listener resumes from the watermark, so nothing is lost, only summarised less
+            AppLog.e(TAG, "❌ Backfill failed after {} alerts", fetched, e);
+        }
+        finish(fetched, System.currentTimeMillis() - startedAt);
+    }
+
+    // later pages continue after the previous page's last document, not from the moving watermark
+    private Query pageQuery(MonitoringScope.Shard shard, long since) {
+        return shard.apply(db.collection("alerts"))
+                .whereGreaterThanOrEqualTo("timestamp", since)
+                .orderBy("timestamp", Query.Direction.ASCENDING)
+                .limit(PAGE_SIZE);
+    }
+
+    private void finish(int fetched, long elapsedMs) {
+        List<Runnable> done;
+        Tally finished;
+        synchronized (this) {
+            finished = tally;
+            done = new ArrayList<>(waiters);
+            waiters.clear();
+            running = false;
+        }
+        if (finished.total > 0) engine.postBacklogSummary(finished);
+        AppLog.i(TAG, "📥 Backfill fetched {} alerts, {} new, in {} ms", fetched, finished.total, elapsedMs);
+        for (Runnable r : done) mainHandler.post(r);
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
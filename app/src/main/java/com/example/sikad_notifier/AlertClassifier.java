@@ -0,0 +1,141 @@
+package com.example.sikad_notifier;
+
+import java.util.Locale;
+
+/**
+ * Rule-based severity classification.
+ *
+ * Rules are written one per line as {@code <field> <op> <value> -> <SEVERITY>}, where field is
+ * {@code type}, {@code message} or {@code bikeId} and op is {@code =} (equals), {@code ~}
+ * (contains) or {@code ^} (starts with), all case-insensitive. The first matching rule wins;
+ * an alert no rule matches is {@link Severity#NORMAL}.
+ *
+ * The rules are parsed once into a flat decision table (parallel arrays of field, op, value and
+ * result), so classifying an alert is a linear scan with region compares and allocates nothing.
+ */
+public class AlertClassifier {
+
+    static final String[] DEFAULT_RULES = {
+            "type = theft -> CRITICAL",
+            "type = tamper -> CRITICAL",
+            "message ~ theft -> CRITICAL",
+            "message ~ stolen -> CRITICAL",
+            "message ~ tamper -> CRITICAL",
+            "message ~ unauthorized -> CRITICAL",
+            "message ~ forced -> CRITICAL",
+            "type = crash -> HIGH",
+            "message ~ crash -> HIGH",
+            "message ~ geofence -> HIGH",
+            "message ~ out of zone -> HIGH",
+            "type = battery -> LOW",
+            "message ~ low battery -> LOW",
+            "message ~ battery low -> LOW",
+            "message ~ heartbeat -> LOW",
+            "message ~ offline -> LOW",
+    };
+
+    private static final int FIELD_TYPE = 0;
+    private static final int FIELD_MESSAGE = 1;
+    private static final int FIELD_BIKE = 2;
+
+    private static final int OP_EQUALS = 0;
+    private static final int OP_CONTAINS = 1;
+    private static final int OP_PREFIX = 2;
+
+    // the decision table, one row per rule
+    private final int[] fields;
+    private final int[] ops;
+    private final String[] values;
+    private final Severity[] results;
+
+    public AlertClassifier() {
+        this(DEFAULT_RULES);
+    }
+
+    // throws IllegalArgumentException for a rule that does not parse
+    public AlertClassifier(String[] rules) {
+        int n = rules.length;
+        fields = new int[n];
+        ops = new int[n];
+        values = new String[n];
+        results = new Severity[n];
+        for (int i = 0; i < n; i++) compile(i, rules[i]);
+    }
+
+    private void compile(int row, String rule) {
+        int arrow = rule.lastIndexOf("->");
+        if (arrow < 0) throw new IllegalArgumentException("Missing '->' in rule: " + rule);
+        String condition = rule.substring(0, arrow).trim();
+        String result = rule.substring(arrow + 2).trim();
+
+        int firstSpace = condition.indexOf(' ');
+        if (firstSpace < 0) throw new IllegalArgumentException("Missing operator in rule: " + rule);
+        int secondSpace = condition.indexOf(' ', firstSpace + 1);
+        if (secondSpace < 0) throw new IllegalArgumentException("Missing value in rule: " + rule);
+
+        fields[row] = parseField(condition.substring(0, firstSpace), rule);
+        ops[row] = parseOp(condition.substring(firstSpace + 1, secondSpace), rule);
+        values[row] = condition.substring(secondSpace + 1).trim();
+        if (values[row].isEmpty()) throw new IllegalArgumentException("Empty value in rule: " + rule);
+        try {
+            results[row] = Severity.valueOf(result.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown severity in rule: " + rule, e);
+        }
+    }
+
+    private static int parseField(String field, String rule) {
+        switch (field) {
+            case "type":
+                return FIELD_TYPE;
+            case "message":
+                return FIELD_MESSAGE;
+            case "bikeId":
+                return FIELD_BIKE;
+            default:
+                throw new IllegalArgumentException("Unknown field in rule: " + rule);
+        }
+    }
+
+    private static int parseOp(String op, String rule) {
+        switch (op) {
+            case "=":
+                return OP_EQUALS;
+            case "~":
+                return OP_CONTAINS;
+            case "^":
+                return OP_PREFIX;
+            default:
+                throw new IllegalArgumentException("Unknown operator in rule: " + rule);
+        }
+    }
+
+    public Severity classify(Alert alert) {
+        for (int i = 0; i < results.length; i++) {
+            String subject = fields[i] == FIELD_TYPE ? alert.type
+                    : fields[i] == FIELD_MESSAGE ? alert.message
+                    : alert.bikeId;
+            if (subject != null && matches(ops[i], subject, values[i])) return results[i];
+        }
+        return Severity.NORMAL;
+    }
+
+    private static boolean matches(int op, String subject, String value) {
+        switch (op) {
+            case OP_EQUALS:
+                return subject.equalsIgnoreCase(value);
+            case OP_PREFIX:
+                return subject.regionMatches(true, 0, value, 0, value.length());
+            default:
+                int last = subject.length() - value.length();
+                for (int from = 0; from <= last; from++) {
+                    if (subject.regionMatches(true, from, value, 0, value.length())) return true;
+                }
+                return false;
+        }
+    }
+
+    public int size() {
+        return results.length;
+    }
+}
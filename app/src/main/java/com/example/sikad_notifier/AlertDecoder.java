@@ -0,0 +1,94 @@
+package com.example.sikad_notifier;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes alert documents into {@link Alert}s.
+ *
+ * Only the fields the pipeline uses are read, straight from the snapshot, instead of
+ * materialising the whole document with getData(). An alert without a usable timestamp is
+ * rejected rather than stamped with "now": it cannot be ordered against the watermark, and the
+ * server-side timestamp filter would never have matched it anyway.
+ */
+public class AlertDecoder {
+
+    private final AtomicLong decoded = new AtomicLong();
+    private final AtomicLong missingTimestamp = new AtomicLong();
+    private final AtomicLong invalidTimestamp = new AtomicLong();
+    private final AtomicLong missingBikeId = new AtomicLong();
+    private final AtomicLong decodeNanos = new AtomicLong();
+
+    // returns null when the document cannot be processed
+    public Alert decode(DocumentSnapshot doc) {
+        long startedAt = System.nanoTime();
+        try {
+            Object rawTimestamp = doc.get("timestamp");
+            if (rawTimestamp == null) {
+                missingTimestamp.incrementAndGet();
+                return null;
+            }
+            long timestamp = toMillis(rawTimestamp);
+            if (timestamp <= 0L) {
+                invalidTimestamp.incrementAndGet();
+                return null;
+            }
+
+            String bikeId = asString(doc.get("bikeId"));
+            if (bikeId.isEmpty()) missingBikeId.incrementAndGet();
+
+            decoded.incrementAndGet();
+            return new Alert(doc.getId(), bikeId, asString(doc.get("message")), timestamp,
+                    asString(doc.get("type")));
+        } finally {
+            decodeNanos.addAndGet(System.nanoTime() - startedAt);
+        }
+    }
+
+    // epoch millis from a numeric or Timestamp field; -1 if it is neither
+    static long toMillis(Object value) {
+        if (value instanceof Number) return ((Number) value).longValue();
+        if (value instanceof Timestamp) {
+            Timestamp ts = (Timestamp) value;
+            return ts.getSeconds() * 1000L + ts.getNanoseconds() / 1_000_000;
+        }
+        return -1L;
+    }
+
+    private static String asString(Object value) {
+        if (value instanceof String) return (String) value;
+        return value != null ? value.toString() : "";
+    }
+
+    public long getDecoded() {
+        return decoded.get();
+    }
+
+    public long getMissingTimestamp() {
+        return missingTimestamp.get();
+    }
+
+    public long getInvalidTimestamp() {
+        return invalidTimestamp.get();
+    }
+
+    public long getMissingBikeId() {
+        return missingBikeId.get();
+    }
+
+    public long getAverageDecodeMicros() {
+        long total = decoded.get() + missingTimestamp.get() + invalidTimestamp.get();
+        return total == 0 ? 0 : decodeNanos.get() / total / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return "decoded=" + getDecoded()
+                + " missingTimestamp=" + getMissingTimestamp()
+                + " invalidTimestamp=" + getInvalidTimestamp()
+                + " missingBikeId=" + getMissingBikeId()
+                + " avgDecodeUs=" + getAverageDecodeMicros();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.sikad_notifier;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.messaging.FirebaseMessaging;
+
+import java.util.Locale;
+
+/**
+ * Chooses how alerts reach this device.
+ *
+ * STREAM (default): the always-on {@link AlertListenerService} snapshot listener. PUSH: FCM data
+ * messages on the {@link #TOPIC} topic wake {@link AlertMessagingService}; no foreground service or
+ * Firestore stream stays open, and an {@link AlertBackfill} run picks up anything sent while
+ * messages could not be delivered. Push only works once a backend sends those messages, so it is
+ * switched on remotely through {@link #CONFIG_DOC} rather than by default, and streaming remains
+ * the fallback when FCM is unavailable on the device. {@link ExecutionModeController} decides
+ * whether streaming runs as the foreground service or, when its foreground budget or the device
+ * state says so, as polling.
+ */
+public final class AlertDelivery {
+
+    private static final String TAG = "AlertDelivery";
+
+    public enum Mode { PUSH, STREAM }
+
+    public static final String TOPIC = "alerts";
+
+    // remote switch: {mode: "PUSH" | "STREAM"}, read whenever the app comes to the foreground
+    static final String CONFIG_COLLECTION = "notifier_config";
+    static final String CONFIG_DOC = "delivery";
+
+    private static final String PREFS = "AlertDelivery";
+    private static final String KEY_MODE = "mode";
+
+    private AlertDelivery() {
+    }
+
+    public static Mode getMode(Context context) {
+        String mode = prefs(context).getString(KEY_MODE, Mode.STREAM.name());
+        try {
+            return Mode.valueOf(mode);
+        } catch (IllegalArgumentException e) {
+            return Mode.STREAM;
+        }
+    }
+
+    public static void setMode(Context context, Mode mode) {
+        prefs(context).edit().putString(KEY_MODE, mode.name()).apply();
+    }
+
+    // pick up the remotely configured mode and restart delivery if it changed (app in the foreground)
+    public static void refreshRemoteMode(Context context) {
+        Context app = context.getApplicationContext();
+        FirebaseFirestore.getInstance().collection(CONFIG_COLLECTION).document(CONFIG_DOC).get()
+                .addOnSuccessListener(doc -> {
+                    Mode remote = parseMode(doc.getString("mode"));
+                    if (remote == null || remote == getMode(app)) return;
+                    AppLog.i(TAG, "🔀 Delivery mode changed remotely to {}", remote);
+                    setMode(app, remote);
+                    if (remote == Mode.STREAM) FirebaseMessaging.getInstance().unsubscribeFromTopic(TOPIC);
+                    start(app);
+                })
+                .addOnFailureListener(e -> AppLog.w(TAG, "⚠️ Could not read delivery config, keeping {}", getMode(app), e));
+    }
+
+    private static Mode parseMode(String value) {
+        if (value == null) return null;
+        try {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // start receiving alerts in the configured mode from a visible activity
+    public static void start(Context context) {
+        start(context, true);
+    }
+
+    // mayStartForeground is false from boot and other background entry points, which fall back
+    // to polling until the screen comes on, a poll run finds streaming allowed or the app is opened
+    public static void start(Context context, boolean mayStartForeground) {
+        if (!context.getSharedPreferences("AdminSession", Context.MODE_PRIVATE)
+                .getBoolean("isLoggedIn", false)) {
+            AppLog.w(TAG, "⚠️ Admin not logged in. Alert delivery will not start.");
+            return;
+        }
+        Context app = context.getApplicationContext();
+
+        if (getMode(app) == Mode.STREAM) {
+            ExecutionModeController.apply(app, mayStartForeground);
+            return;
+        }
+
+        // push mode: nothing needs to stay running
+        app.stopService(new Intent(app, AlertListenerService.class));
+        ExecutionModeController.usePush(app);
+        FirebaseMessaging.getInstance().subscribeToTopic(TOPIC)
+                .addOnSuccessListener(v -> AppLog.d(TAG, "✅ Subscribed to {} push alerts", TOPIC))
+                .addOnFailureListener(e -> {
+                    // no usable FCM on this device: keep alerts flowing over the stream instead; this
+                    // callback may run in the background, so polling covers until streaming can start again
+                    AppLog.e(TAG, "❌ Push subscription failed, falling back to streaming", e);
+                    ExecutionModeController.apply(app, false);
+                });
+        catchUp(app);
+    }
+
+    // stop every delivery path and drop the engine (logout)
+    public static void stop(Context context) {
+        Context app = context.getApplicationContext();
+        FirebaseMessaging.getInstance().unsubscribeFromTopic(TOPIC);
+        app.stopService(new Intent(app, AlertListenerService.class));
+        ExecutionModeController.stop(app);
+        AlertEngine.release();
+    }
+
+    // backfill everything past the watermark under one summary notification
+    static void catchUp(Context context) {
+        AlertEngine.get(context).backfill().run(null);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
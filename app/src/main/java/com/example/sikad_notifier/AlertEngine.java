@@ -0,0 +1,690 @@
+package com.example.sikad_notifier;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+
+import androidx.core.app.NotificationCompat;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide alert processing: the staged pipeline plus everything it drives (dedupe against
+ * the watermark, severity classification, per-bike coalescing, sound, paced notifications and
+ * notifier_logs writes). Each {@link Severity} has its own channel, sound throttle and coalescing
+ * window; critical alerts skip coalescing and the notification queue.
+ *
+ * When a {@link StormDetector} sees an alert storm, the engine degrades until it passes: other
+ * alerts stop getting per-bike notifications and sound and are reported by one rolling storm
+ * notification instead, only a sample of them is logged, and log batches are held back longer.
+ *
+ * Every alert source feeds the same engine: the Firestore stream in {@link AlertListenerService},
+ * FCM data messages in {@link AlertMessagingService}, and catch-up queries. It is created on first
+ * use and lives until {@link #release()} (logout).
+ */
+public class AlertEngine {
+
+    private static final String TAG = "AlertEngine";
+
+    private static final String CHANNEL_ID_ALERT = NotificationChannelManager.CHANNEL_ID_ALERT;
+
+    // at most this many per-bike notifications at once; the rest only appear in the group summary
+    private static final int MAX_BIKE_NOTIFICATIONS = 6;
+    private static final String ALERT_GROUP = "sikad_alerts";
+
+    // notifier_logs records are buffered and committed in batches at most this long after the first one
+    private static final long LOG_FLUSH_DELAY_MS = 2000L;
+    // during a storm: batches fill up to the Firestore limit or wait this long
+    private static final long STORM_LOG_FLUSH_DELAY_MS = 30_000L;
+    // how long shutdown waits for queued alerts to be notified and journaled
+    private static final long SHUTDOWN_DRAIN_MS = 2000L;
+    // during a storm only one in this many non-critical alerts gets its own log record
+    static final int STORM_LOG_SAMPLE = 10;
+
+    // group summary notification (InboxStyle over all bikes with open windows)
+    private static final int SUMMARY_NOTIFICATION_ID = 1001;
+    // one notification for everything a backfill caught up on
+    private static final int BACKLOG_NOTIFICATION_ID = 1002;
+    // one rolling notification for an alert storm
+    private static final int STORM_NOTIFICATION_ID = 1003;
+    // per-bike notification ids are handed out from here
+    private static final int FIRST_BIKE_NOTIFICATION_ID = 2000;
+    // critical alerts each get their own notification, rotating through this many ids
+    private static final int CRITICAL_NOTIFICATION_ID = 1_000_000;
+    private static final int CRITICAL_SLOTS = 50;
+
+    private static AlertEngine instance;
+
+    private final Context context;
+
+    // persisted resume point; only alerts past it are processed
+    private final AlertWatermark watermark;
+    // ids already handled by this device, across restarts; an alert is only added (and the
+    // watermark only advanced past it) once its log record is journaled
+    private final ProcessedAlertFilter processed;
+    // alerts past dedupe that are not journaled yet, so a duplicate in flight is still dropped
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final NotifierLogWriter logWriter;
+    private final AlertPipeline pipeline;
+    private final AlertBackfill backfill;
+    private final AlertDecoder decoder = new AlertDecoder();
+
+    // classification rules, compiled once
+    private final AlertClassifier classifier = new AlertClassifier();
+
+    // last time each severity played sound, and the next critical notification slot (route stage only)
+    private final long[] lastSoundTime = new long[Severity.ALL.length];
+    private int nextCriticalSlot = 0;
+
+    // per-bike coalescing, one aggregator per coalesced severity (null for CRITICAL)
+    private final CoalescingAggregator[] aggregators = new CoalescingAggregator[Severity.ALL.length];
+
+    // per-bike state shared with the UI (process-wide)
+    private final BikeStateTable bikeStates = BikeStateTable.get();
+
+    // a bike may raise BIKE_ALERT_BURST alerts at once, then BIKE_ALERTS_PER_MINUTE; the rest are counted
+    static final int BIKE_ALERT_BURST = 5;
+    static final int BIKE_ALERTS_PER_MINUTE = 6;
+    private final BikeRateLimiter rateLimiter = new BikeRateLimiter(BIKE_ALERT_BURST, BIKE_ALERTS_PER_MINUTE);
+    // a bike quiet for a whole tick while limited gets its suppressed count logged on its own
+    private static final long SUPPRESSED_FLUSH_MS = 60_000L;
+    private final ScheduledExecutorService suppressedFlusher = Executors.newSingleThreadScheduledExecutor();
+
+    // degraded mode while the live alert rate is far above normal
+    private final StormDetector storm;
+    // storm alerts (and their rate-limited ones) not logged since the last sampled record (persist stage only)
+    private long stormUnlogged = 0L;
+
+    // time from an alert being raised to its notification being posted
+    private final MetricsRegistry.Histogram postedLatency = MetricsRegistry.get().histogram(MetricsRegistry.ALERT_POSTED);
+    private final MetricsRegistry.Counter posted = MetricsRegistry.get().counter(MetricsRegistry.ALERTS_POSTED);
+
+    // coalescing windows that currently own a notification (render stage only)
+    private final Set<Integer> notifiedWindows = new HashSet<>();
+
+    // built once and shared by every notification we post
+    private final PendingIntent contentIntent;
+    private final NotificationDispatcher dispatcher;
+    private final AlertSoundPlayer soundPlayer;
+
+    // builder templates, reused across updates (dispatcher thread only)
+    private final Map<Integer, NotificationCompat.Builder> bikeTemplates = new HashMap<>();
+    private final NotificationCompat.Builder summaryTemplate;
+
+    // registered with MetricsRegistry; removed again in shutdown so a released engine is not kept
+    // alive by the registry
+    private final Map<String, LongSupplier> gauges = new HashMap<>();
+
+    // released engines shut down here, one at a time
+    private static final ExecutorService SHUTDOWN_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public static synchronized AlertEngine get(Context context) {
+        if (instance == null) instance = new AlertEngine(context.getApplicationContext());
+        return instance;
+    }
+
+    // logout: drop the engine and flush what is in flight in the background (draining can take
+    // seconds and logout runs on the main thread); the next get() starts fresh
+    public static synchronized void release() {
+        if (instance == null) return;
+        AlertEngine released = instance;
+        instance = null;
+        SHUTDOWN_EXECUTOR.execute(released::shutdown);
+    }
+
+    // runs once every engine released so far has shut down (and written its last checkpoint)
+    public static void afterRelease(Runnable action) {
+        SHUTDOWN_EXECUTOR.execute(action);
+    }
+
+    private AlertEngine(Context context) {
+        this.context = context;
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+
+        AtomicInteger notificationIds = new AtomicInteger(FIRST_BIKE_NOTIFICATION_ID);
+        for (Severity severity : Severity.ALL) {
+            if (severity.isCoalesced()) {
+                aggregators[severity.ordinal()] = new CoalescingAggregator(severity.coalesceWindowMs, notificationIds);
+            }
+        }
+
+        // a saved watermark wins over the start time so restarts resume where they stopped
+        watermark = new AlertWatermark(context, System.currentTimeMillis());
+        processed = new ProcessedAlertFilter(context);
+
+        contentIntent = PendingIntent.getActivity(
+                context, 0, new Intent(context, MainActivity.class),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        summaryTemplate = new NotificationCompat.Builder(context, CHANNEL_ID_ALERT)
+                .setSmallIcon(android.R.drawable.ic_dialog_alert)
+                .setGroup(ALERT_GROUP)
+                .setGroupSummary(true)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setAutoCancel(true)
+                .setContentIntent(contentIntent);
+        dispatcher = new NotificationDispatcher(context.getSystemService(NotificationManager.class),
+                SUMMARY_NOTIFICATION_ID, STORM_NOTIFICATION_ID, BACKLOG_NOTIFICATION_ID);
+        logWriter = new NotifierLogWriter(context, db, LOG_FLUSH_DELAY_MS);
+        storm = new StormDetector(new StormDetector.Listener() {
+            @Override
+            public void onStormStarted(StormDetector.Stats stats) {
+                enterStorm(stats);
+            }
+
+            @Override
+            public void onStormProgress(StormDetector.Stats stats) {
+                dispatcher.post(STORM_NOTIFICATION_ID, false, alerting -> stormNotification(stats, false, alerting));
+            }
+
+            @Override
+            public void onStormEnded(StormDetector.Stats stats) {
+                exitStorm(stats);
+            }
+        });
+
+        // replay whatever an earlier process journaled but never got acknowledged
+        if (NotifierLogJournal.get(context).hasPending()) {
+            NotifierLogDrainWorker.enqueueBacklog(context);
+        }
+        NotifierLogDrainWorker.schedulePeriodic(context);
+
+        // channels are only (re)created when their config version changes
+        NotificationChannelManager.ensureChannels(context);
+
+        // decode the alert sound once, up front
+        soundPlayer = new AlertSoundPlayer(context, CHANNEL_ID_ALERT);
+
+        // snapshot callbacks and all per-alert work run off the main thread
+        pipeline = new AlertPipeline(decoder::decode, this::dedupeAlert, this::routeAlert,
+                this::renderAlert, this::persistAlert, this::onPersistIdle);
+        backfill = new AlertBackfill(context, this, db);
+        suppressedFlusher.scheduleAtFixedRate(
+                () -> rateLimiter.drainQuiet(bikeStates.size(), this::logSuppressed),
+                SUPPRESSED_FLUSH_MS, SUPPRESSED_FLUSH_MS, TimeUnit.MILLISECONDS);
+        registerGauges();
+    }
+
+    private void registerGauges() {
+        gauges.put("storm.active", () -> storm.isStorming() ? 1L : 0L);
+        gauges.put("bikes.tracked", bikeStates::size);
+        gauges.put("notifications.merged", dispatcher::getMerged);
+        gauges.put("notifications.dropped", dispatcher::getDropped);
+        gauges.put("render.superseded", pipeline::getSupersededRenders);
+        gauges.put("logs.failed_records", logWriter::getFailedRecords);
+        gauges.put("logs.max_batch", logWriter::getMaxBatchSize);
+        gauges.put("logs.avg_commit_ms", logWriter::getAverageFlushLatencyMs);
+        gauges.put("watermark", watermark::get);
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            MetricsRegistry.get().gauge(gauge.getKey(), gauge.getValue());
+        }
+    }
+
+    public AlertWatermark watermark() {
+        return watermark;
+    }
+
+    // pass to addSnapshotListener / addOnSuccessListener so callbacks run on the ingest stage
+    public Executor listenerExecutor() {
+        return pipeline.listenerExecutor();
+    }
+
+    // catch-up of missed alerts; run it before (re)starting live delivery
+    public AlertBackfill backfill() {
+        return backfill;
+    }
+
+    // an added alert document (call from the ingest stage)
+    public void submit(DocumentSnapshot doc) {
+        pipeline.submit(doc);
+    }
+
+    // an alert that arrived already decoded, e.g. from a push message
+    public void submit(Alert alert) {
+        pipeline.submit(alert);
+    }
+
+    // backfill pages: quiet alerts are logged and counted but only notified via the backlog summary
+    void submit(DocumentSnapshot doc, boolean quiet) {
+        if (!quiet) {
+            pipeline.submit(doc);
+            return;
+        }
+        Alert alert = decoder.decode(doc);
+        if (alert != null) pipeline.submit(alert.asBackfill());
+    }
+
+    // wait for queued alerts to be notified and handed to the log writer, then send the logs now;
+    // for short-lived callers (push messages) that may be frozen as soon as they return
+    public boolean drain(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        boolean idle = pipeline.awaitIdle(timeoutMs)
+                && logWriter.awaitJournaled(Math.max(0L, deadline - System.currentTimeMillis()));
+        checkpoint();
+        logWriter.flush();
+        return idle;
+    }
+
+    // persist the resume point and the processed-alert record
+    public void checkpoint() {
+        watermark.commit();
+        processed.commit();
+    }
+
+    private void shutdown() {
+        AppLog.d(TAG, "📊 Pipeline stats: {}", pipeline);
+        AppLog.d(TAG, "📊 Decoder stats: {}", decoder);
+        AppLog.d(TAG, "📊 Bike state: {} {}", bikeStates, rateLimiter);
+        AppLog.d(TAG, "📊 Storm stats: {}", storm);
+        // only our own: the next engine may already have registered under the same names
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            MetricsRegistry.get().removeGauge(gauge.getKey(), gauge.getValue());
+        }
+        storm.shutdown();
+        suppressedFlusher.shutdownNow();
+        backfill.shutdown();
+        // let queued alerts finish; whatever is cut off was never marked processed and comes back
+        // through the next backfill
+        try {
+            if (!drain(SHUTDOWN_DRAIN_MS)) AppLog.w(TAG, "⚠️ Pipeline not drained at shutdown: {}", pipeline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pipeline.shutdown();
+        AppLog.d(TAG, "📊 Dispatcher stats: {}", dispatcher);
+        dispatcher.shutdown();
+        soundPlayer.release();
+        checkpoint();
+        AppLog.d(TAG, "📊 Dedupe stats: {}", processed);
+        AppLog.d(TAG, "📊 Log writer stats: {}", logWriter);
+        logWriter.shutdown();
+    }
+
+    // dedupe stage: drop alerts this device already processed (window overlap, cache replays,
+    // restarts) or that are still in flight; an unseen alert behind the watermark is a late
+    // arrival and still goes through
+    private boolean dedupeAlert(Alert alert) {
+        boolean behind = !watermark.isNew(alert.id, alert.timestamp);
+        if (processed.isProcessed(alert.id, behind)) return false;
+        return inFlight.add(alert.id);
+    }
+
+    // the alert's log record is journaled (or it needs none): it may now count as processed
+    private void markProcessed(Alert alert) {
+        processed.add(alert.id);
+        watermark.advance(alert.id, alert.timestamp);
+        inFlight.remove(alert.id);
+    }
+
+    // route stage: storm detection, severity, per-bike rate limit, sound throttle and coalescing;
+    // only this stage touches lastSoundTime.
+    private AlertPipeline.Routed routeAlert(Alert alert) {
+        try {
+            return route(alert);
+        } catch (RuntimeException e) {
+            // not processed, so the next backfill retries it; it must not stay in flight forever
+            inFlight.remove(alert.id);
+            throw e;
+        }
+    }
+
+    private AlertPipeline.Routed route(Alert alert) {
+        long now = System.currentTimeMillis();
+        int bikeHandle = bikeStates.record(alert.bikeId, alert.timestamp);
+        Severity severity = classifier.classify(alert);
+        boolean quiet = alert.backfill && severity != Severity.CRITICAL;
+        if (quiet) backfill.record(alert);
+        // backfill pages arrive in bursts by design, so only live alerts count toward a storm
+        if (!alert.backfill) storm.record(bikeHandle, now);
+        boolean stormed = storm.isStorming() && severity != Severity.CRITICAL;
+
+        // a flapping bike: count the alert and drop it; critical alerts are never held back
+        if (bikeHandle >= 0 && severity != Severity.CRITICAL && !rateLimiter.tryAcquire(bikeHandle, alert.timestamp)) {
+            return new AlertPipeline.Routed(alert, bikeHandle, severity, null, false, 0L, true);
+        }
+        long suppressed = bikeHandle >= 0 ? rateLimiter.drainSuppressed(bikeHandle) : 0L;
+
+        if (quiet || stormed) {
+            // no window, no sound: the backlog summary or the storm notification covers it
+            return new AlertPipeline.Routed(alert, bikeHandle, severity, null, false, suppressed);
+        }
+
+        CoalescingAggregator.Window window;
+        CoalescingAggregator aggregator = aggregators[severity.ordinal()];
+        if (aggregator != null) {
+            window = aggregator.record(alert.bikeId, alert.id, alert.message, suppressed, now);
+            // quiet bikes give up their notification; the id goes to the next bike that needs one
+            if (window.isNew()) {
+                for (int id : aggregator.expire(now)) dispatcher.cancel(id);
+            }
+        } else {
+            // never coalesced: a window of one with a notification of its own
+            window = new CoalescingAggregator.Window(alert.bikeId, CRITICAL_NOTIFICATION_ID + nextCriticalSlot,
+                    1, now, now, alert.id, alert.message, suppressed);
+            nextCriticalSlot = (nextCriticalSlot + 1) % CRITICAL_SLOTS;
+        }
+
+        // only the first alert of a window may sound, and never more than once per severity's throttle
+        int level = severity.ordinal();
+        boolean playSound = window.isNew() && (now - lastSoundTime[level]) >= severity.soundThrottleMs;
+        if (playSound) {
+            lastSoundTime[level] = now;
+            // play right away rather than waiting for the paced notification post
+            if (severity.usesSoundPlayer()) soundPlayer.play(severity.channelId);
+        }
+        return new AlertPipeline.Routed(alert, bikeHandle, severity, window, playSound, suppressed);
+    }
+
+    // render stage: per-bike notification (while there is room) plus the group summary,
+    // handed to the dispatcher which merges and paces the actual notify calls
+    private void renderAlert(AlertPipeline.Routed routed) {
+        CoalescingAggregator.Window window = routed.window;
+        if (window == null) return;
+        Severity severity = routed.severity;
+        long raisedAt = routed.alert.timestamp;
+        if (!severity.isCoalesced()) {
+            // critical: its own notification, outside the group, ahead of everything queued
+            dispatcher.postUrgent(window.notificationId, routed.playSound,
+                    alerting -> markPosted(raisedAt, bikeNotification(severity, window, alerting)));
+            return;
+        }
+
+        List<CoalescingAggregator.Window> active = activeWindows(System.currentTimeMillis());
+
+        // forget windows that closed so their slot can be reused
+        Set<Integer> activeIds = new HashSet<>();
+        for (CoalescingAggregator.Window w : active) activeIds.add(w.notificationId);
+        notifiedWindows.retainAll(activeIds);
+
+        boolean bikePosted = false;
+        if (notifiedWindows.contains(window.notificationId) || notifiedWindows.size() < MAX_BIKE_NOTIFICATIONS) {
+            notifiedWindows.add(window.notificationId);
+            dispatcher.post(window.notificationId, routed.playSound,
+                    alerting -> markPosted(raisedAt, bikeNotification(severity, window, alerting)));
+            bikePosted = true;
+        }
+
+        // the summary only makes noise when the bike had no notification of its own to do it
+        boolean summarySound = routed.playSound && !bikePosted;
+        boolean summaryOnly = !bikePosted;
+        dispatcher.post(SUMMARY_NOTIFICATION_ID, summarySound, alerting -> {
+            Notification summary = summaryNotification(active, alerting);
+            return summaryOnly ? markPosted(raisedAt, summary) : summary;
+        });
+    }
+
+    // renderers run right before the notify call; an update merged into a newer one is not counted
+    private Notification markPosted(long raisedAt, Notification notification) {
+        posted.increment();
+        postedLatency.record(System.currentTimeMillis() - raisedAt);
+        return notification;
+    }
+
+    // open windows of every coalesced severity, most recently active first
+    private List<CoalescingAggregator.Window> activeWindows(long now) {
+        List<CoalescingAggregator.Window> active = new ArrayList<>();
+        for (CoalescingAggregator aggregator : aggregators) {
+            if (aggregator != null) active.addAll(aggregator.activeWindows(now));
+        }
+        active.sort((a, b) -> Long.compare(b.lastTs, a.lastTs));
+        return active;
+    }
+
+    // persist stage: every device that received the alert logs it; the document is keyed by alert
+    // id and written create-only, so only the first device's copy lands. During a storm
+    // only one in STORM_LOG_SAMPLE non-critical alerts is logged, picked by alert id so every device
+    // samples the same ones, carrying the count of those skipped.
+    private void persistAlert(AlertPipeline.Routed routed) {
+        try {
+            persist(routed);
+        } catch (RuntimeException e) {
+            inFlight.remove(routed.alert.id);
+            throw e;
+        }
+    }
+
+    private void persist(AlertPipeline.Routed routed) {
+        Alert alert = routed.alert;
+        if (routed.rateLimited) {
+            // counted into the next admitted alert's record; marked behind the records already
+            // enqueued so the watermark never passes an earlier alert that is not journaled yet
+            logWriter.afterJournaled(() -> markProcessed(alert));
+            return;
+        }
+        long sampled = 0L;
+        if (storm.isStorming() && routed.severity != Severity.CRITICAL) {
+            if (Math.floorMod(alert.id.hashCode(), STORM_LOG_SAMPLE) != 0) {
+                stormUnlogged += 1L + routed.suppressed;
+                logWriter.afterJournaled(() -> markProcessed(alert));
+                return;
+            }
+            sampled = stormUnlogged;
+            stormUnlogged = 0L;
+        } else if (stormUnlogged > 0L) {
+            // storm over: the next logged alert carries whatever the last sample left behind
+            sampled = stormUnlogged;
+            stormUnlogged = 0L;
+        }
+        // one record for this alert and the rate-limited ones before it
+        saveNotifierLog(alert.id, alert.bikeId, alert.message, routed.severity.logType,
+                1L + routed.suppressed, routed.suppressed, sampled, false, alert.timestamp,
+                () -> markProcessed(alert));
+    }
+
+    // the persist stage caught up: write the watermark and processed ids once instead of once per alert
+    private void onPersistIdle() {
+        checkpoint();
+    }
+
+    // per-window builder template, reused across updates (dispatcher thread only)
+    private NotificationCompat.Builder bikeTemplate(int notificationId, Severity severity) {
+        NotificationCompat.Builder b = bikeTemplates.get(notificationId);
+        if (b != null) return b;
+        // ids are recycled per severity, so this only trips after an unusually wide burst of bikes
+        if (bikeTemplates.size() >= 4 * MAX_BIKE_NOTIFICATIONS + CRITICAL_SLOTS) bikeTemplates.clear();
+
+        // on Android O+ (our minSdk) sound and vibration come from the severity's channel
+        b = new NotificationCompat.Builder(context, severity.channelId)
+                .setSmallIcon(android.R.drawable.ic_dialog_alert)
+                .setPriority(severity == Severity.LOW
+                        ? NotificationCompat.PRIORITY_DEFAULT : NotificationCompat.PRIORITY_HIGH)
+                .setAutoCancel(true)
+                .setContentIntent(contentIntent);
+        // critical alerts stay out of the group so they are never bundled away
+        if (severity.isCoalesced()) b.setGroup(ALERT_GROUP);
+        bikeTemplates.put(notificationId, b);
+        return b;
+    }
+
+    private Notification bikeNotification(Severity severity, CoalescingAggregator.Window window, boolean alerting) {
+        String title;
+        if (severity == Severity.CRITICAL) {
+            title = "🚨 Critical alert from " + window.bikeId;
+        } else {
+            String icon = severity == Severity.LOW ? "ℹ️ " : severity == Severity.HIGH ? "⚠️ " : "🚨 ";
+            title = window.count > 1
+                    ? icon + window.count + " alerts from " + window.bikeId
+                    : icon + "Alert from " + window.bikeId;
+        }
+        String text = window.suppressed > 0
+                ? window.lastMessage + " (" + window.suppressed + " suppressed)"
+                : window.lastMessage;
+        NotificationCompat.Builder b = bikeTemplate(window.notificationId, severity)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setWhen(window.lastTs)
+                .setSilent(!alerting)
+                .clearActions()
+                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "Resolve",
+                        AlertActionReceiver.resolveIntent(context, window.notificationId,
+                                window.bikeId, window.lastAlertId));
+        if (window.count > 1) {
+            b.addAction(android.R.drawable.ic_menu_close_clear_cancel, "Resolve all",
+                    AlertActionReceiver.resolveBikeIntent(context, window.notificationId, window.bikeId));
+        }
+        return b.build();
+    }
+
+    private Notification summaryNotification(List<CoalescingAggregator.Window> windows, boolean alerting) {
+        // group summary: one line per bike, newest first
+        int total = 0;
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        for (int i = 0; i < windows.size(); i++) {
+            CoalescingAggregator.Window w = windows.get(i);
+            total += w.count;
+            if (i < MAX_BIKE_NOTIFICATIONS) {
+                String count = w.suppressed > 0 ? w.count + ", " + w.suppressed + " suppressed" : String.valueOf(w.count);
+                style.addLine(w.bikeId + " (" + count + "): " + w.lastMessage);
+            }
+        }
+        if (windows.size() > MAX_BIKE_NOTIFICATIONS) {
+            style.setSummaryText("+" + (windows.size() - MAX_BIKE_NOTIFICATIONS) + " more bikes");
+        }
+
+        String title = "🚨 " + total + " new alerts from " + windows.size() + " bikes";
+        style.setBigContentTitle(title);
+        return summaryTemplate
+                .setContentTitle(title)
+                .setContentText(windows.isEmpty() ? "" : windows.get(0).lastMessage)
+                .setStyle(style)
+                .setNumber(total)
+                .setSilent(!alerting)
+                .build();
+    }
+
+    // storm started: one sound, the rolling notification, and lazier log batches
+    private void enterStorm(StormDetector.Stats stats) {
+        AppLog.w(TAG, "🌩️ Alert storm: {} alerts in one window, degrading until it passes", stats.lastWindowCount);
+        logWriter.setFlushDelay(STORM_LOG_FLUSH_DELAY_MS);
+        soundPlayer.play();
+        dispatcher.post(STORM_NOTIFICATION_ID, true, alerting -> stormNotification(stats, false, alerting));
+    }
+
+    // storm over: back to normal batching, and the rolling notification becomes a final summary
+    private void exitStorm(StormDetector.Stats stats) {
+        AppLog.i(TAG, "✅ Alert storm over: {} alerts from {} bikes", stats.alerts, stats.bikes);
+        logWriter.setFlushDelay(LOG_FLUSH_DELAY_MS);
+        logWriter.flush();
+        dispatcher.post(STORM_NOTIFICATION_ID, false, alerting -> stormNotification(stats, true, alerting));
+    }
+
+    private Notification stormNotification(StormDetector.Stats stats, boolean ended, boolean alerting) {
+        long minutes = Math.max(1L, (System.currentTimeMillis() - stats.startedAt) / 60_000L);
+        String title = ended
+                ? "✅ Alert storm over: " + stats.alerts + " alerts from " + stats.bikes + " bikes"
+                : "🌩️ Alert storm: " + stats.alerts + " alerts from " + stats.bikes + " bikes";
+        String text = ended
+                ? "Lasted about " + minutes + " min. Open the app to review the logs."
+                : stats.lastWindowCount + " alerts in the last " + StormDetector.WINDOW_MS / 1000L
+                + " s. Only critical alerts are notified individually.";
+        return new NotificationCompat.Builder(context, CHANNEL_ID_ALERT)
+                .setSmallIcon(android.R.drawable.ic_dialog_alert)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setOnlyAlertOnce(true)
+                .setOngoing(!ended)
+                .setAutoCancel(ended)
+                .setContentIntent(contentIntent)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(text))
+                .setNumber((int) Math.min(Integer.MAX_VALUE, stats.alerts))
+                .setWhen(stats.startedAt)
+                .setSilent(!alerting)
+                .build();
+    }
+
+    // one sound and one notification for a whole backfill run
+    void postBacklogSummary(AlertBackfill.Tally tally) {
+        soundPlayer.play();
+        dispatcher.post(BACKLOG_NOTIFICATION_ID, true, alerting -> backlogNotification(tally, alerting));
+    }
+
+    private Notification backlogNotification(AlertBackfill.Tally tally, boolean alerting) {
+        synchronized (tally) {
+            // busiest bikes first
+            List<Map.Entry<String, Integer>> bikes = new ArrayList<>(tally.countByBike.entrySet());
+            bikes.sort((a, b) -> b.getValue() - a.getValue());
+
+            NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+            for (int i = 0; i < bikes.size() && i < MAX_BIKE_NOTIFICATIONS; i++) {
+                String bikeId = bikes.get(i).getKey();
+                style.addLine(bikeId + " (" + bikes.get(i).getValue() + "): " + tally.lastMessageByBike.get(bikeId));
+            }
+            if (bikes.size() > MAX_BIKE_NOTIFICATIONS) {
+                style.setSummaryText("+" + (bikes.size() - MAX_BIKE_NOTIFICATIONS) + " more bikes");
+            }
+
+            String title = "🚨 " + tally.total + " missed alerts from " + bikes.size() + " bikes";
+            style.setBigContentTitle(title);
+            return new NotificationCompat.Builder(context, CHANNEL_ID_ALERT)
+                    .setSmallIcon(android.R.drawable.ic_dialog_alert)
+                    .setPriority(NotificationCompat.PRIORITY_HIGH)
+                    .setGroup(ALERT_GROUP)
+                    .setAutoCancel(true)
+                    .setContentIntent(contentIntent)
+                    .setContentTitle(title)
+                    .setContentText("While this device was offline")
+                    .setStyle(style)
+                    .setNumber(tally.total)
+                    .setWhen(tally.newestTs)
+                    .setSilent(!alerting)
+                    .build();
+        }
+    }
+
+    // flusher thread: keyed by the bike's last alert so every device that saw the same alerts
+    // writes the same record; it stands for no single alert, so it has no alertId to resolve
+    private void logSuppressed(int bikeHandle, long suppressed) {
+        String bikeId = bikeStates.bikeId(bikeHandle);
+        long lastTs = bikeStates.lastAlertTime(bikeHandle);
+        AppLog.d(TAG, "🔇 {} alerts from bike {} suppressed since its last logged alert", suppressed, bikeId);
+        // '/' would split the document path
+        String docId = "suppressed_" + bikeId.replace('/', '_') + "_" + lastTs;
+        saveNotifierLog(docId, null, bikeId, suppressed + " alerts suppressed",
+                "suppressed", suppressed, suppressed, 0L, false, lastTs, null);
+    }
+
+    private void saveNotifierLog(String alertId, String bikeId, String message, String type, Long count,
+                                 Long suppressed, long sampled, Boolean resolved, long timestamp,
+                                 Runnable onJournaled) {
+        saveNotifierLog(alertId, alertId, bikeId, message, type, count, suppressed, sampled, resolved,
+                timestamp, onJournaled);
+    }
+
+    private void saveNotifierLog(String docId, String alertId, String bikeId, String message, String type, Long count,
+                                 Long suppressed, long sampled, Boolean resolved, long timestamp,
+                                 Runnable onJournaled) {
+        Map<String, Object> log = new HashMap<>();
+        log.put("alertId", alertId); // lets a resolve reach the originating alert
+        log.put("bikeId", bikeId);
+        log.put("message", message);
+        log.put("type", type);
+        log.put("count", count);
+        log.put("suppressed", suppressed);
+        // storm alerts this record stands in for that were not logged themselves
+        if (sampled > 0L) log.put("stormSampled", sampled);
+        log.put("resolved", resolved);
+        log.put("timestamp", timestamp);
+
+        // one document per alert, whichever device (or replay) writes it
+        logWriter.enqueue(docId, log, onJournaled);
+    }
+}
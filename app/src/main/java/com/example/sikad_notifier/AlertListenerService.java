@@ -1,321 +1,293 @@
 package com.example.sikad_notifier;
 
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.SharedPreferences;
-import android.media.AudioAttributes;
-import android.media.MediaPlayer;
-import android.net.Uri;
-import android.os.Build;
 import android.os.IBinder;
-import android.util.Log;
+import android.os.PowerManager;
 
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
 
-import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.google.firebase.firestore.QuerySnapshot;
 
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class AlertListenerService extends Service {
 
     private static final String TAG = "AlertListenerService";
 
-    private static final String CHANNEL_ID_MONITOR = "monitor_channel";
-    private static final String CHANNEL_ID_ALERT = "alert_channel";
+    private static final String CHANNEL_ID_MONITOR = NotificationChannelManager.CHANNEL_ID_MONITOR;
 
-    // throttle sound to at most once per SOUND_THROTTLE_MS
-    private static final long SOUND_THROTTLE_MS = 3000L;
+    // the alerts listener is re-anchored at the watermark after this long or this many docs,
+    // so the SDK's query view (and our heap) stays bounded on devices that run for weeks
+    private static final long WINDOW_MS = 30 * 60 * 1000L;
+    private static final int WINDOW_MAX_DOCS = 500;
+
+    // registered per supervisor, removed in onDestroy
+    private static final String GAUGE_DISCONNECTED_MS = "listener.disconnected_ms";
+    private static final String GAUGE_RECONNECTS = "listener.reconnects";
 
     private FirebaseFirestore db;
     private SharedPreferences prefs;
-    private long serviceStartTime;
 
-    // last time we played sound
-    private long lastSoundTime = 0L;
+    // shared with push delivery; owns the watermark, pipeline, notifications and log writes
+    private AlertEngine engine;
+    // one live listener per query, however many times the service is (re)started
+    private final ListenerRegistry listenerRegistry = new ListenerRegistry();
+    // one subscription per whereIn shard of the monitoring scope, supervised together
+    private SubscriptionGroup alertSubscription;
+    private MonitoringScope scope;
+    // resubscribes with backoff when the listener fails, and tracks connection state
+    private ListenerSupervisor alertSupervisor;
+
+    // foreground time is being counted against the daily dataSync budget
+    private boolean foregroundCounted = false;
+
+    // re-check streaming vs polling when the screen turns off or the battery gets low
+    private final BroadcastReceiver conditionsReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (ExecutionModeController.choose(AlertListenerService.this)
+                    == ExecutionModeController.Mode.POLLING) {
+                AppLog.i(TAG, "🔋 {}: handing over to polling", intent.getAction());
+                ExecutionModeController.switchToPolling(AlertListenerService.this);
+            }
+        }
+    };
+    private boolean conditionsRegistered = false;
 
-    // single "active" notification id for coalescing rapid alerts (updated instead of creating new noisy notifications)
-    private final int COALESCE_NOTIFICATION_ID = 1001;
+    // time from an alert being raised to its server snapshot reaching us (ingest thread)
+    private final MetricsRegistry.Histogram receiptLatency = MetricsRegistry.get().histogram(MetricsRegistry.ALERT_RECEIPT);
+    private final MetricsRegistry.Counter received = MetricsRegistry.get().counter(MetricsRegistry.ALERTS_RECEIVED);
 
-    // unique id generator for non-coalesced notifications (if you still want separate ones)
-    private final AtomicInteger uniq = new AtomicInteger((int) (System.currentTimeMillis() & 0xffff));
+    // alerts first seen as unconfirmed local writes, held until the server confirms them (ingest thread only)
+    private final Set<String> pendingLocalAlerts = new HashSet<>();
 
     @Override
     public void onCreate() {
         super.onCreate();
-        Log.d(TAG, "🟢 Service created");
+        AppLog.d(TAG, "🟢 Service created");
 
         prefs = getSharedPreferences("AdminSession", Context.MODE_PRIVATE);
 
         if (!prefs.getBoolean("isLoggedIn", false)) {
-            Log.w(TAG, "⚠️ Admin not logged in. Service will stop.");
+            AppLog.w(TAG, "⚠️ Admin not logged in. Service will stop.");
             stopSelf();
             return;
         }
 
         db = FirebaseFirestore.getInstance();
-
-        // recreate channels now (deletes old alert channel so sound is applied)
-        createNotificationChannels();
+        engine = AlertEngine.get(this);
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        Log.d(TAG, "▶️ Service started or restarted");
+        AppLog.d(TAG, "▶️ Service started or restarted");
 
-        if (intent != null && intent.hasExtra("SERVICE_START_TIME")) {
-            serviceStartTime = intent.getLongExtra("SERVICE_START_TIME", System.currentTimeMillis());
-        } else {
-            serviceStartTime = System.currentTimeMillis();
+        // a sticky restart (null intent) skips ExecutionModeController, so the foreground budget
+        // may be used up or timed out: re-check before going foreground
+        if (ExecutionModeController.choose(this) == ExecutionModeController.Mode.POLLING) {
+            AppLog.i(TAG, "⏱️ No foreground budget for this start, handing over to polling");
+            return handOverToPolling();
         }
 
         // start foreground silent monitor notification
-        startForeground(1, buildPersistentNotification());
+        try {
+            startForeground(1, buildPersistentNotification());
+        } catch (IllegalStateException e) {
+            // ForegroundServiceStartNotAllowedException
+            AppLog.w(TAG, "⚠️ Foreground start not allowed, handing over to polling", e);
+            return handOverToPolling();
+        }
+        if (!foregroundCounted) {
+            foregroundCounted = true;
+            ExecutionModeController.onForegroundStarted(this);
+        }
+
+        // onCreate bailed out (admin not logged in)
+        if (engine == null) {
+            stopSelf();
+            return START_NOT_STICKY;
+        }
 
         // start listening
         listenToAlerts();
 
-        return START_STICKY;
-    }
-
-    private void createNotificationChannels() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationManager manager = getSystemService(NotificationManager.class);
-
-            // Monitor channel (silent)
-            if (manager.getNotificationChannel(CHANNEL_ID_MONITOR) == null) {
-                NotificationChannel monitorChannel = new NotificationChannel(
-                        CHANNEL_ID_MONITOR,
-                        "Monitor Notifications",
-                        NotificationManager.IMPORTANCE_LOW
-                );
-                monitorChannel.setDescription("Shows that alert monitoring is active (no sound)");
-                manager.createNotificationChannel(monitorChannel);
-            }
-
-            // Recreate alert channel to ensure custom sound is set
-            manager.deleteNotificationChannel(CHANNEL_ID_ALERT);
-
-            Uri soundUri = Uri.parse("android.resource://" + getPackageName() + "/" + R.raw.alert);
-
-            AudioAttributes audioAttributes = new AudioAttributes.Builder()
-                    .setUsage(AudioAttributes.USAGE_NOTIFICATION)
-                    .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                    .build();
-
-            NotificationChannel alertChannel = new NotificationChannel(
-                    CHANNEL_ID_ALERT,
-                    "Alert Notifications",
-                    NotificationManager.IMPORTANCE_HIGH
-            );
-            alertChannel.setDescription("Notifies when bikes trigger alerts");
-            alertChannel.enableVibration(true);
-            alertChannel.setVibrationPattern(new long[]{0, 400, 200, 400});
-            alertChannel.setSound(soundUri, audioAttributes);
-
-            manager.createNotificationChannel(alertChannel);
+        if (!conditionsRegistered) {
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_SCREEN_OFF);
+            filter.addAction(Intent.ACTION_BATTERY_LOW);
+            filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+            ContextCompat.registerReceiver(this, conditionsReceiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+            conditionsRegistered = true;
         }
-    }
-
-    private NotificationCompat.Builder baseAlertBuilder(String bikeId, String message, boolean playSound) {
-        Intent intent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-                this, 0, intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
 
-        NotificationCompat.Builder b = new NotificationCompat.Builder(this, CHANNEL_ID_ALERT)
-                .setSmallIcon(android.R.drawable.ic_dialog_alert)
-                .setContentTitle("🚨 Alert from " + bikeId)
-                .setContentText(message)
-                .setPriority(NotificationCompat.PRIORITY_HIGH)
-                .setAutoCancel(true)
-                .setContentIntent(pendingIntent);
-
-        // Note: on Android O+, sound is controlled by channel. We include setSound for pre-O devices
-        if (playSound) {
-            b.setVibrate(new long[]{0, 400, 200, 400})
-                    .setSound(Uri.parse("android.resource://" + getPackageName() + "/" + R.raw.alert));
-        } else {
-            // do not set sound/vibrate on builder; channel rules apply for O+
-        }
-        return b;
+        return START_STICKY;
     }
 
-    private NotificationCompat.Builder baseCoalesceBuilder(String summaryText, int count) {
-        // convenience builder to update existing notification with counter
-        Intent intent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-                this, 0, intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
+    private int handOverToPolling() {
+        ExecutionModeController.switchToPolling(this);
+        stopSelf();
+        return START_NOT_STICKY;
+    }
 
-        String title = "🚨 " + count + " new alerts";
-        return new NotificationCompat.Builder(this, CHANNEL_ID_ALERT)
-                .setSmallIcon(android.R.drawable.ic_dialog_alert)
-                .setContentTitle(title)
-                .setContentText(summaryText)
-                .setPriority(NotificationCompat.PRIORITY_HIGH)
-                .setAutoCancel(true)
-                .setContentIntent(pendingIntent);
+    // Android 15: the daily dataSync allowance is used up; we must stop within seconds
+    @Override
+    public void onTimeout(int startId, int fgsType) {
+        AppLog.w(TAG, "⏳ Foreground time limit reached, switching to polling");
+        ExecutionModeController.onTimeout(this);
+        foregroundCounted = false;
+        ExecutionModeController.switchToPolling(this);
+        stopForeground(STOP_FOREGROUND_REMOVE);
+        stopSelf();
     }
 
     private android.app.Notification buildPersistentNotification() {
-        Intent intent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-                this, 0, intent,
+        PendingIntent contentIntent = PendingIntent.getActivity(
+                this, 0, new Intent(this, MainActivity.class),
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
-
         return new NotificationCompat.Builder(this, CHANNEL_ID_MONITOR)
                 .setSmallIcon(android.R.drawable.ic_dialog_info)
                 .setContentTitle("🚲 SIKAD Alert Monitor Active")
                 .setContentText("Listening for new bike alerts…")
                 .setOngoing(true)
                 .setPriority(NotificationCompat.PRIORITY_LOW)
-                .setContentIntent(pendingIntent)
+                .setContentIntent(contentIntent)
                 .build();
     }
 
-    private volatile int coalesceCount = 0;
-    private volatile long coalesceFirstTs = 0L;
-
+    // safe to call on every onStartCommand: re-attaching a live subscription is a no-op,
+    // a changed monitoring scope replaces the subscriptions
     private void listenToAlerts() {
-        db.collection("alerts")
-                .addSnapshotListener((QuerySnapshot snapshots, FirebaseFirestoreException e) -> {
-                    if (!prefs.getBoolean("isLoggedIn", false)) {
-                        Log.w(TAG, "⚠️ Admin logged out. Stopping alert listener.");
-                        stopSelf();
-                        return;
-                    }
-                    if (e != null) {
-                        Log.e(TAG, "❌ Firestore listener error", e);
-                        return;
-                    }
-                    if (snapshots == null) return;
-
-                    for (DocumentChange dc : snapshots.getDocumentChanges()) {
-                        if (dc.getType() == DocumentChange.Type.ADDED) {
-                            long alertTimestamp = safeTimestamp(dc.getDocument().get("timestamp"));
-                            if (alertTimestamp < serviceStartTime) continue;
-
-                            Map<String, Object> data = dc.getDocument().getData();
-                            Log.d(TAG, "📄 New alert data: " + data);
-
-                            String bikeId = safeString(data.get("bikeId"));
-                            String message = safeString(data.get("message"));
-
-                            // Decide whether to play sound now (throttle)
-                            long now = System.currentTimeMillis();
-                            boolean allowSound = (now - lastSoundTime) >= SOUND_THROTTLE_MS;
-                            if (allowSound) lastSoundTime = now;
-
-                            // Coalesce rapid alerts for a short window (e.g. 3s) to avoid sounding many times
-                            if (coalesceFirstTs == 0 || now - coalesceFirstTs > SOUND_THROTTLE_MS) {
-                                // start new coalesce window
-                                coalesceFirstTs = now;
-                                coalesceCount = 1;
-
-                                // show a notification (with sound if allowed)
-                                showAlertNotification(bikeId, message, allowSound);
-                            } else {
-                                // within coalesce window: increment count and update single notification without sound
-                                coalesceCount++;
-                                updateCoalescedNotification(bikeId, message, coalesceCount);
-                            }
-
-                            // Always persist log
-                            saveNotifierLog(bikeId, message, "unknown", 1L, false, alertTimestamp);
-                        }
-                    }
-                });
-        Log.d(TAG, "📡 Listening for alert changes...");
-    }
-
-    private void showAlertNotification(String bikeId, String message, boolean playSound) {
-        NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-
-        // If allowed to play sound, play via Notification (channel sound + builder) — this is preferred
-        if (playSound) {
-            manager.notify(uniq.incrementAndGet(), baseAlertBuilder(bikeId, message, true).build());
-        } else {
-            // create/update a coalesced notification (no sound)
-            updateCoalescedNotification(bikeId, message, ++coalesceCount);
+        MonitoringScope configured = MonitoringScope.load(this);
+        if (alertSubscription != null && !configured.equals(scope)) {
+            AppLog.i(TAG, "🎯 Monitoring scope changed to {}", configured);
+            alertSupervisor.stop();
+            alertSubscription = null;
+        }
+        if (alertSubscription == null) {
+            scope = configured;
+            alertSupervisor = new ListenerSupervisor("alerts", this::onAlertsSnapshot);
+            ListenerSupervisor supervisor = alertSupervisor;
+            MetricsRegistry.get().gauge(GAUGE_DISCONNECTED_MS, supervisor::getTotalDisconnectedMs);
+            MetricsRegistry.get().gauge(GAUGE_RECONNECTS, supervisor::getReconnects);
+            List<AlertSubscription> shards = new ArrayList<>();
+            for (MonitoringScope.Shard shard : scope.shards()) {
+                shards.add(new AlertSubscription(db, listenerRegistry, "alerts" + shard.key, shard,
+                        engine.watermark(), WINDOW_MS, WINDOW_MAX_DOCS, engine.listenerExecutor(),
+                        alertSupervisor));
+            }
+            alertSubscription = new SubscriptionGroup(shards);
+            alertSupervisor.supervise(alertSubscription);
+        }
+        if (alertSupervisor.getState() != ListenerSupervisor.State.STOPPED) {
+            AppLog.d(TAG, "📡 Alert listener already supervised: {} ({} live)",
+                    alertSupervisor.getState(), getActiveListenerCount());
+            return;
         }
+        // catch up on whatever was missed while we were not running, then go live from the watermark
+        engine.backfill().run(this::startLiveListener);
     }
 
-    private void updateCoalescedNotification(String bikeId, String message, int count) {
-        NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-        String summary = message;
-        NotificationCompat.Builder b = baseCoalesceBuilder(summary, count);
-        // do NOT set sound here (we've decided to avoid playing it)
-        manager.notify(COALESCE_NOTIFICATION_ID, b.build());
+    private void startLiveListener() {
+        if (alertSupervisor == null || alertSupervisor.getState() != ListenerSupervisor.State.STOPPED) return;
+        alertSupervisor.start();
+        AppLog.d(TAG, "📡 Listening for {} since {} ({} live)",
+                scope, engine.watermark().get(), getActiveListenerCount());
     }
 
-    private void saveNotifierLog(String bikeId, String message, String type, Long count, Boolean resolved, long timestamp) {
-        Map<String, Object> log = new HashMap<>();
-        log.put("bikeId", bikeId);
-        log.put("message", message);
-        log.put("type", type);
-        log.put("count", count);
-        log.put("resolved", resolved);
-        log.put("timestamp", timestamp);
-
-        db.collection("notifier_logs").add(log)
-                .addOnSuccessListener(doc -> Log.d(TAG, "✅ Log added to notifier_logs"))
-                .addOnFailureListener(err -> Log.e(TAG, "❌ Failed to add log", err));
+    public int getActiveListenerCount() {
+        return listenerRegistry.activeCount();
     }
 
-    // Optional: direct playback fallback (use only if you understand DND and UX implications)
-    // This tries to play the mp3 directly via MediaPlayer (may bypass channel mute but not DND).
-    // Use carefully; commented out by default.
-    @SuppressWarnings("unused")
-    private void playSoundDirectly() {
-        try {
-            Uri soundUri = Uri.parse("android.resource://" + getPackageName() + "/" + R.raw.alert);
-            MediaPlayer mp = new MediaPlayer();
-            mp.setDataSource(this, soundUri);
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                mp.setAudioAttributes(new AudioAttributes.Builder()
-                        .setUsage(AudioAttributes.USAGE_NOTIFICATION)
-                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                        .build());
-            }
-            mp.setOnCompletionListener(MediaPlayer::release);
-            mp.prepare();
-            mp.start();
-        } catch (IOException ex) {
-            Log.e(TAG, "playSoundDirectly failed: " + ex.getMessage());
-        }
+    public ListenerSupervisor.State getConnectionState() {
+        return alertSupervisor != null ? alertSupervisor.getState() : ListenerSupervisor.State.STOPPED;
     }
 
-    private String safeString(Object obj) {
-        return obj != null ? obj.toString() : "";
-    }
+    private void onAlertsSnapshot(QuerySnapshot snapshots, FirebaseFirestoreException e) {
+        if (!prefs.getBoolean("isLoggedIn", false)) {
+            AppLog.w(TAG, "⚠️ Admin logged out. Stopping alert listener.");
+            stopSelf();
+            return;
+        }
+        if (e != null) {
+            // the supervisor has already scheduled the resubscribe
+            AppLog.e(TAG, "❌ Firestore listener error", e);
+            return;
+        }
+        if (snapshots == null) return;
 
-    private Long safeLong(Object obj) {
-        return obj instanceof Number ? ((Number) obj).longValue() : 0L;
+        // cache-served replays (reconnect, restart) still come through as ADDED; the engine's
+        // processed-alert filter drops the ones already handled
+        boolean fromCache = snapshots.getMetadata().isFromCache();
+        if (fromCache) {
+            AppLog.v(TAG, "📦 Alerts snapshot from cache ({} changes)", snapshots.getDocumentChanges().size());
+        }
+        long now = System.currentTimeMillis();
+        for (DocumentChange dc : snapshots.getDocumentChanges()) {
+            DocumentSnapshot doc = dc.getDocument();
+            boolean pendingWrite = doc.getMetadata().hasPendingWrites();
+            if (dc.getType() == DocumentChange.Type.ADDED) {
+                if (pendingWrite) {
+                    // written on this device and not yet accepted by the server
+                    pendingLocalAlerts.add(doc.getId());
+                } else {
+                    if (!fromCache) recordReceipt(doc, now);
+                    engine.submit(doc);
+                }
+            } else if (dc.getType() == DocumentChange.Type.MODIFIED && !pendingWrite
+                    && pendingLocalAlerts.remove(doc.getId())) {
+                if (!fromCache) recordReceipt(doc, now);
+                engine.submit(doc);
+            } else if (dc.getType() == DocumentChange.Type.REMOVED) {
+                pendingLocalAlerts.remove(doc.getId());
+            }
+        }
     }
 
-    private Boolean safeBool(Object obj) {
-        return obj instanceof Boolean ? (Boolean) obj : false;
+    // cache replays are left out: they were received long ago
+    private void recordReceipt(DocumentSnapshot doc, long now) {
+        received.increment();
+        long timestamp = AlertDecoder.toMillis(doc.get("timestamp"));
+        if (timestamp > 0L) receiptLatency.record(now - timestamp);
     }
 
-    private long safeTimestamp(Object obj) {
-        if (obj instanceof Number) return ((Number) obj).longValue();
-        if (obj instanceof Timestamp) return ((Timestamp) obj).toDate().getTime();
-        return System.currentTimeMillis();
+    @Override
+    public void onDestroy() {
+        if (alertSupervisor != null) {
+            AppLog.d(TAG, "📊 Listener stats: {}", alertSupervisor);
+            alertSupervisor.stop();
+            alertSupervisor = null;
+            alertSubscription = null;
+        }
+        listenerRegistry.detachAll();
+        MetricsRegistry.get().removeGauge(GAUGE_DISCONNECTED_MS);
+        MetricsRegistry.get().removeGauge(GAUGE_RECONNECTS);
+        if (conditionsRegistered) {
+            unregisterReceiver(conditionsReceiver);
+            conditionsRegistered = false;
+        }
+        if (foregroundCounted) {
+            ExecutionModeController.onForegroundStopped(this);
+            foregroundCounted = false;
+        }
+        // the engine outlives the service (push delivery keeps using it); just persist our progress
+        if (engine != null) engine.checkpoint();
+        super.onDestroy();
     }
 
     @Nullable
@@ -0,0 +1,70 @@
+package com.example.sikad_notifier;
+
+import android.text.format.DateUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Dashboard list adapter. Every submitted list is diffed against the current one off the main
+ * thread, so live updates and page loads only touch the rows that actually changed.
+ */
+public class AlertLogAdapter extends ListAdapter<AlertLogItem, AlertLogAdapter.ViewHolder> {
+
+    private static final DiffUtil.ItemCallback<AlertLogItem> DIFF = new DiffUtil.ItemCallback<AlertLogItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull AlertLogItem a, @NonNull AlertLogItem b) {
+            return a.id.equals(b.id);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull AlertLogItem a, @NonNull AlertLogItem b) {
+            return a.equals(b);
+        }
+    };
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView bike;
+        final TextView message;
+        final TextView time;
+        final TextView status;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            bike = itemView.findViewById(R.id.alertBike);
+            message = itemView.findViewById(R.id.alertMessage);
+            time = itemView.findViewById(R.id.alertTime);
+            status = itemView.findViewById(R.id.alertStatus);
+        }
+    }
+
+    public AlertLogAdapter() {
+        super(DIFF);
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_alert_log, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        AlertLogItem item = getItem(position);
+        holder.bike.setText("🚲 " + (item.bikeId != null ? item.bikeId : "unknown"));
+        String message = item.message != null ? item.message : "";
+        holder.message.setText(item.suppressed > 0 ? message + " (" + item.suppressed + " suppressed)" : message);
+        holder.time.setText(item.timestamp > 0
+                ? DateUtils.getRelativeTimeSpanString(item.timestamp, System.currentTimeMillis(),
+                        DateUtils.MINUTE_IN_MILLIS)
+                : "");
+        holder.status.setText(item.resolved ? "✅ Resolved" : "⚠️ Open");
+    }
+}
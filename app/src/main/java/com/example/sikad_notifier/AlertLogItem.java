@@ -0,0 +1,66 @@
+package com.example.sikad_notifier;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.Objects;
+
+/**
+ * One row of the dashboard: an immutable copy of the notifier_logs fields the list shows.
+ *
+ * Rows compare by value so DiffUtil can tell a changed row (e.g. newly resolved) from an
+ * unchanged one without rebinding the whole list.
+ */
+public final class AlertLogItem {
+
+    public final String id;
+    public final String bikeId;
+    public final String message;
+    public final String type;
+    public final boolean resolved;
+    public final long timestamp;
+    // rate-limited alerts this record stands for
+    public final long suppressed;
+
+    public AlertLogItem(String id, String bikeId, String message, String type, boolean resolved, long timestamp,
+                        long suppressed) {
+        this.id = id;
+        this.bikeId = bikeId;
+        this.message = message;
+        this.type = type;
+        this.resolved = resolved;
+        this.timestamp = timestamp;
+        this.suppressed = suppressed;
+    }
+
+    public static AlertLogItem from(DocumentSnapshot doc) {
+        Boolean resolved = doc.getBoolean("resolved");
+        Long suppressed = doc.getLong("suppressed");
+        return new AlertLogItem(
+                doc.getId(),
+                doc.getString("bikeId"),
+                doc.getString("message"),
+                doc.getString("type"),
+                resolved != null && resolved,
+                AlertDecoder.toMillis(doc.get("timestamp")),
+                suppressed != null ? suppressed : 0L);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AlertLogItem)) return false;
+        AlertLogItem other = (AlertLogItem) o;
+        return resolved == other.resolved
+                && timestamp == other.timestamp
+                && suppressed == other.suppressed
+                && id.equals(other.id)
+                && Objects.equals(bikeId, other.bikeId)
+                && Objects.equals(message, other.message)
+                && Objects.equals(type, other.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+}
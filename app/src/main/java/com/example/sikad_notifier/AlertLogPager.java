@@ -0,0 +1,226 @@
+package com.example.sikad_notifier;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Newest-first, paged view of notifier_logs for the dashboard.
+ *
+ * Only a sliding window of at most {@link #MAX_PAGES} pages is kept in memory. Scrolling towards
+ * the end loads the next older page with a {@code startAfter} cursor; scrolling back up reloads
+ * newer pages with {@code endBefore}/{@code limitToLast}. Whichever end is furthest from the
+ * visible rows is dropped once the window is full. While the window reaches the newest log, the
+ * top page is a live snapshot listener bounded by a cursor, so new and changed logs show up as
+ * row-level changes instead of a reload. The live page is capped at {@link #PAGE_SIZE} rows too:
+ * once new logs fill it, it stays behind as an ordinary page and a fresh live page starts above
+ * it, so a storm with the dashboard open cannot grow it without bound.
+ *
+ * Main thread only: Firestore delivers callbacks on the main thread by default.
+ */
+public class AlertLogPager {
+
+    private static final String TAG = "AlertLogPager";
+
+    public static final int PAGE_SIZE = 30;
+    // visible rows plus a prefetch margin on each side
+    public static final int MAX_PAGES = 4;
+    public static final int PREFETCH_DISTANCE = PAGE_SIZE / 2;
+
+    public interface Listener {
+        void onItemsChanged(List<AlertLogItem> items);
+    }
+
+    private static final class Page {
+        List<AlertLogItem> items;
+        // cursors for the neighbouring pages; null when the page is empty
+        DocumentSnapshot first;
+        DocumentSnapshot last;
+
+        Page(List<DocumentSnapshot> docs) {
+            set(docs);
+        }
+
+        void set(List<DocumentSnapshot> docs) {
+            List<AlertLogItem> rows = new ArrayList<>(docs.size());
+            for (DocumentSnapshot doc : docs) rows.add(AlertLogItem.from(doc));
+            items = rows;
+            first = docs.isEmpty() ? null : docs.get(0);
+            last = docs.isEmpty() ? null : docs.get(docs.size() - 1);
+        }
+    }
+
+    private final Query newestFirst;
+    private final Listener listener;
+
+    // window.get(0) is the live head page while head != null
+    private final List<Page> window = new ArrayList<>();
+    private ListenerRegistration head;
+    // head listener has no lower bound yet (nothing older has been loaded below it)
+    private boolean headUnbounded;
+    private boolean loading;
+    private boolean reachedOldest;
+    // bumped on stop so late page loads from an earlier start are ignored
+    private int generation;
+    // last range reported by onVisibleRange, for trimming when the live page splits
+    private int lastVisible;
+    private int itemCount;
+
+    public AlertLogPager(FirebaseFirestore db, Listener listener) {
+        this.newestFirst = db.collection("notifier_logs").orderBy("timestamp", Query.Direction.DESCENDING);
+        this.listener = listener;
+    }
+
+    public void start() {
+        if (head != null || !window.isEmpty()) return;
+        window.add(new Page(new ArrayList<>()));
+        attachHead(newestFirst.limit(PAGE_SIZE), true);
+    }
+
+    public void stop() {
+        generation++;
+        detachHead();
+        window.clear();
+        loading = false;
+        reachedOldest = false;
+    }
+
+    // called as the list scrolls, with the visible adapter positions
+    public void onVisibleRange(int firstVisible, int lastVisible, int itemCount) {
+        if (firstVisible < 0) return;
+        this.lastVisible = lastVisible;
+        this.itemCount = itemCount;
+        if (lastVisible >= itemCount - PREFETCH_DISTANCE) {
+            loadOlder(firstVisible);
+        } else if (head == null && firstVisible <= PREFETCH_DISTANCE) {
+            loadNewer(lastVisible, itemCount);
+        }
+    }
+
+    private void attachHead(Query query, boolean unbounded) {
+        detachHead();
+        headUnbounded = unbounded;
+        head = query.addSnapshotListener((snapshot, e) -> {
+            if (e != null) {
+                AppLog.e(TAG, "❌ Dashboard listener failed", e);
+                return;
+            }
+            if (snapshot == null || window.isEmpty()) return;
+            List<DocumentSnapshot> docs = snapshot.getDocuments();
+            window.get(0).set(docs);
+            if (!headUnbounded && docs.size() >= PAGE_SIZE) splitHead();
+            publish();
+        });
+    }
+
+    // the pinned live page is full: keep it as an ordinary page and go on live above it; the new
+    // head takes the PAGE_SIZE logs right above, so several splits in a row catch up on a burst
+    private void splitHead() {
+        DocumentSnapshot top = window.get(0).first;
+        window.add(0, new Page(new ArrayList<>()));
+        attachHead(pinnedAbove(top), false);
+        trimBottom(lastVisible, itemCount);
+    }
+
+    // the logs newer than cursor, at most a page of them, nearest to the cursor first in line
+    private Query pinnedAbove(DocumentSnapshot cursor) {
+        return newestFirst.endBefore(cursor).limitToLast(PAGE_SIZE);
+    }
+
+    private void detachHead() {
+        if (head != null) {
+            head.remove();
+            head = null;
+        }
+    }
+
+    private void loadOlder(int firstVisible) {
+        if (loading || reachedOldest || window.isEmpty()) return;
+        DocumentSnapshot cursor = window.get(window.size() - 1).last;
+        if (cursor == null) return;
+
+        // pin the live head to what it shows now so new logs cannot push rows past the next page's cursor
+        if (head != null && headUnbounded && window.size() == 1) {
+            attachHead(newestFirst.endAt(cursor).limitToLast(PAGE_SIZE), false);
+        }
+
+        loading = true;
+        int gen = generation;
+        newestFirst.startAfter(cursor).limit(PAGE_SIZE).get()
+                .addOnSuccessListener(snapshot -> {
+                    if (gen != generation) return;
+                    loading = false;
+                    List<DocumentSnapshot> docs = snapshot.getDocuments();
+                    if (docs.size() < PAGE_SIZE) reachedOldest = true;
+                    if (docs.isEmpty()) return;
+                    window.add(new Page(docs));
+                    trimTop(firstVisible);
+                    publish();
+                })
+                .addOnFailureListener(e -> {
+                    if (gen != generation) return;
+                    loading = false;
+                    AppLog.e(TAG, "❌ Failed to load older logs", e);
+                });
+    }
+
+    private void loadNewer(int lastVisible, int itemCount) {
+        if (loading || window.isEmpty()) return;
+        DocumentSnapshot cursor = window.get(0).first;
+        if (cursor == null) return;
+
+        loading = true;
+        int gen = generation;
+        newestFirst.endBefore(cursor).limitToLast(PAGE_SIZE).get()
+                .addOnSuccessListener(snapshot -> {
+                    if (gen != generation) return;
+                    loading = false;
+                    List<DocumentSnapshot> docs = snapshot.getDocuments();
+                    window.add(0, new Page(docs));
+                    if (docs.size() < PAGE_SIZE) {
+                        // back at the newest log: keep the top page live from here on
+                        attachHead(pinnedAbove(cursor), false);
+                    }
+                    trimBottom(lastVisible + docs.size(), itemCount + docs.size());
+                    publish();
+                })
+                .addOnFailureListener(e -> {
+                    if (gen != generation) return;
+                    loading = false;
+                    AppLog.e(TAG, "❌ Failed to load newer logs", e);
+                });
+    }
+
+    // drop the top page once the window is full, unless it is still on screen
+    private void trimTop(int firstVisible) {
+        if (window.size() <= MAX_PAGES) return;
+        Page top = window.get(0);
+        if (firstVisible < top.items.size()) return;
+        if (head != null) detachHead();
+        window.remove(0);
+    }
+
+    // drop the bottom page once the window is full, unless it is still on screen
+    private void trimBottom(int lastVisible, int itemCount) {
+        if (window.size() <= MAX_PAGES) return;
+        Page bottom = window.get(window.size() - 1);
+        if (lastVisible >= itemCount - bottom.items.size()) return;
+        window.remove(window.size() - 1);
+        reachedOldest = false;
+    }
+
+    private void publish() {
+        List<AlertLogItem> items = new ArrayList<>();
+        for (Page page : window) items.addAll(page.items);
+        listener.onItemsChanged(items);
+    }
+
+    public boolean isLive() {
+        return head != null;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.sikad_notifier;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Turns push data payloads into {@link Alert}s and hands them to a sink (normally
+ * {@link AlertEngine#submit(Alert)}).
+ *
+ * Payload contract for the "alerts" topic, all values strings as FCM requires:
+ * {@code alertId} (the alerts document id), {@code bikeId}, {@code message} and
+ * {@code timestamp} (epoch millis, same as the document field). A payload without an alertId or a
+ * positive timestamp is rejected. Kept free of Android classes so it can be fed from FCM, a local
+ * fake sender or a plain unit test alike.
+ */
+public class AlertMessageHandler {
+
+    public static final String KEY_ALERT_ID = "alertId";
+    public static final String KEY_BIKE_ID = "bikeId";
+    public static final String KEY_MESSAGE = "message";
+    public static final String KEY_TIMESTAMP = "timestamp";
+    public static final String KEY_TYPE = "type";
+
+    private final Consumer<Alert> sink;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public AlertMessageHandler(Consumer<Alert> sink) {
+        this.sink = sink;
+    }
+
+    // returns whether the payload carried a usable alert
+    public boolean handle(Map<String, String> data) {
+        Alert alert = parse(data);
+        if (alert == null) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        accepted.incrementAndGet();
+        sink.accept(alert);
+        return true;
+    }
+
+    static Alert parse(Map<String, String> data) {
+        if (data == null) return null;
+        String id = data.get(KEY_ALERT_ID);
+        if (id == null || id.isEmpty()) return null;
+
+        long timestamp;
+        try {
+            timestamp = Long.parseLong(data.get(KEY_TIMESTAMP));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (timestamp <= 0L) return null;
+
+        String bikeId = data.get(KEY_BIKE_ID);
+        String message = data.get(KEY_MESSAGE);
+        String type = data.get(KEY_TYPE);
+        return new Alert(id, bikeId != null ? bikeId : "", message != null ? message : "", timestamp,
+                type != null ? type : "");
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return "accepted=" + getAccepted() + " rejected=" + getRejected();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.sikad_notifier;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.messaging.FirebaseMessagingService;
+import com.google.firebase.messaging.RemoteMessage;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Push delivery: high-priority FCM data messages on the "alerts" topic carry the alert itself, so
+ * the device only wakes when there is something to show and keeps no socket open in between.
+ * Payloads go through {@link AlertMessageHandler} into the same {@link AlertEngine} the Firestore
+ * stream uses.
+ */
+public class AlertMessagingService extends FirebaseMessagingService {
+
+    private static final String TAG = "AlertMessagingService";
+
+    // a high-priority message gives us a short window before the process may be frozen again
+    private static final long DRAIN_TIMEOUT_MS = 5000L;
+
+    @Override
+    public void onMessageReceived(@NonNull RemoteMessage message) {
+        if (message.getPriority() != message.getOriginalPriority()) {
+            // deprioritized by the system (app standby bucket); still handle it
+            AppLog.w(TAG, "⚠️ Alert message {} was deprioritized", message.getMessageId());
+        }
+        dispatch(this, message.getData());
+    }
+
+    @Override
+    public void onDeletedMessages() {
+        // FCM dropped pending messages for us (device offline too long): fetch what we missed
+        AppLog.w(TAG, "⚠️ Pending alert messages were deleted, catching up from Firestore");
+        AlertDelivery.catchUp(this);
+    }
+
+    @Override
+    public void onNewToken(@NonNull String token) {
+        // topic subscriptions follow the token, nothing to re-register
+        AppLog.d(TAG, "🔑 New FCM token");
+    }
+
+    // shared by FCM and local test senders; blocks until the alert is processed (background thread only)
+    static boolean dispatch(Context context, Map<String, String> data) {
+        if (!context.getSharedPreferences("AdminSession", Context.MODE_PRIVATE)
+                .getBoolean("isLoggedIn", false)) {
+            AppLog.w(TAG, "⚠️ Admin not logged in. Ignoring alert message.");
+            return false;
+        }
+
+        AlertEngine engine = AlertEngine.get(context);
+        // the topic carries the whole fleet; drop bikes outside this admin's scope before any work
+        MonitoringScope scope = MonitoringScope.load(context);
+        Consumer<Alert> sink = alert -> {
+            if (scope.includesBike(alert.bikeId)) engine.submit(alert);
+        };
+        if (!new AlertMessageHandler(sink).handle(data)) {
+            AppLog.w(TAG, "⚠️ Ignoring malformed alert message {}", data);
+            return false;
+        }
+        try {
+            if (!engine.drain(DRAIN_TIMEOUT_MS)) AppLog.w(TAG, "⚠️ Alert still processing after drain timeout");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.sikad_notifier;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Staged, off-main-thread processing of incoming alerts:
+ * ingest → decode → dedupe → route → render / persist.
+ *
+ * Snapshot listener callbacks are delivered on the ingest stage via {@link #listenerExecutor()};
+ * every later stage runs on its own thread behind a bounded queue, so a burst of document
+ * changes never touches the main looper. Ingest is unbounded so Firestore's shared callback thread
+ * never waits on us. Render coalesces: while a bike's notification is waiting to be drawn, a newer
+ * update for that same notification replaces it instead of queueing behind it, so a busy bike takes
+ * one render slot and never pushes another bike's update out. Critical alerts are each their own
+ * notification and are never coalesced. Every stage applies blocking backpressure so no alert is
+ * lost.
+ */
+public class AlertPipeline {
+
+    // output of the route stage: the alert plus its severity, coalescing window and sound decision
+    public static class Routed {
+        public final Alert alert;
+        public final int bikeHandle; // BikeStateTable handle, -1 if the table is full
+        public final Severity severity;
+        public final CoalescingAggregator.Window window; // null when nothing is to be shown
+        public final boolean playSound;
+        // rate-limited alerts from the same bike that this one stands for
+        public final long suppressed;
+        // this alert itself was rate-limited: nothing to show or log, but it still has to reach
+        // the persist stage so it is only marked processed in order with the alerts before it
+        public final boolean rateLimited;
+
+        public Routed(Alert alert, int bikeHandle, Severity severity, CoalescingAggregator.Window window,
+                      boolean playSound, long suppressed) {
+            this(alert, bikeHandle, severity, window, playSound, suppressed, false);
+        }
+
+        public Routed(Alert alert, int bikeHandle, Severity severity, CoalescingAggregator.Window window,
+                      boolean playSound, long suppressed, boolean rateLimited) {
+            this.alert = alert;
+            this.bikeHandle = bikeHandle;
+            this.severity = severity;
+            this.window = window;
+            this.playSound = playSound;
+            this.suppressed = suppressed;
+            this.rateLimited = rateLimited;
+        }
+    }
+
+    private static final long IDLE_POLL_MS = 10L;
+
+    private final PipelineStage<Runnable> ingest;
+    private final PipelineStage<DocumentSnapshot> decode;
+    private final PipelineStage<Alert> dedupe;
+    private final PipelineStage<Alert> route;
+    private final PipelineStage<Routed> render;
+    private final PipelineStage<Routed> persist;
+
+    private final Executor listenerExecutor;
+
+    // newest not-yet-rendered update per coalesced notification id; the render queue holds each id
+    // at most once and the render stage picks up whatever is latest for it
+    private final ConcurrentHashMap<Integer, Routed> pendingRenders = new ConcurrentHashMap<>();
+    private final AtomicLong supersededRenders = new AtomicLong();
+
+    public AlertPipeline(Function<DocumentSnapshot, Alert> decoder,
+                         Predicate<Alert> deduper,
+                         Function<Alert, Routed> router,
+                         Consumer<Routed> renderer,
+                         Consumer<Routed> persister,
+                         Runnable onPersistIdle) {
+        persist = new PipelineStage<>("persist", 1024, PipelineStage.Backpressure.BLOCK,
+                persister, onPersistIdle);
+        render = new PipelineStage<>("render", 64, PipelineStage.Backpressure.BLOCK, routed -> {
+            if (!routed.severity.isCoalesced()) {
+                renderer.accept(routed);
+                return;
+            }
+            Routed latest = pendingRenders.remove(routed.window.notificationId);
+            if (latest != null) renderer.accept(latest);
+        });
+        route = new PipelineStage<>("route", 256, PipelineStage.Backpressure.BLOCK, alert -> {
+            Routed routed = router.apply(alert);
+            if (routed.rateLimited) {
+                persist.submit(routed);
+                return;
+            }
+            if (routed.window != null) {
+                // each critical alert is its own notification, so none may be superseded
+                if (!routed.severity.isCoalesced() || coalesceRender(routed)) render.submit(routed);
+            }
+            persist.submit(routed);
+        });
+        dedupe = new PipelineStage<>("dedupe", 256, PipelineStage.Backpressure.BLOCK, alert -> {
+            if (deduper.test(alert)) route.submit(alert);
+        });
+        decode = new PipelineStage<>("decode", 256, PipelineStage.Backpressure.BLOCK, doc -> {
+            Alert alert = decoder.apply(doc);
+            if (alert != null) dedupe.submit(alert);
+        });
+        // snapshot callbacks hand off without blocking; backpressure starts at decode, on our own thread
+        ingest = new PipelineStage<>("ingest", 0, PipelineStage.Backpressure.UNBOUNDED, Runnable::run);
+
+        listenerExecutor = ingest::submit;
+    }
+
+    // park routed as its notification's latest update; true if that id still needs a render slot
+    private boolean coalesceRender(Routed routed) {
+        boolean[] queued = {true};
+        pendingRenders.compute(routed.window.notificationId, (id, previous) -> {
+            if (previous == null) return routed;
+            queued[0] = false;
+            supersededRenders.incrementAndGet();
+            // the update that replaces a sounding one keeps its sound, or the alert would go silent
+            if (!previous.playSound || routed.playSound) return routed;
+            return new Routed(routed.alert, routed.bikeHandle, routed.severity, routed.window,
+                    true, routed.suppressed, routed.rateLimited);
+        });
+        return queued[0];
+    }
+
+    // updates merged into a newer one for the same notification before they were rendered
+    public long getSupersededRenders() {
+        return supersededRenders.get();
+    }
+
+    // pass to addSnapshotListener so callbacks run on the ingest stage instead of the main thread
+    public Executor listenerExecutor() {
+        return listenerExecutor;
+    }
+
+    // called from the ingest stage for every added alert document
+    public void submit(DocumentSnapshot doc) {
+        decode.submit(doc);
+    }
+
+    // an alert that is already decoded (push message) goes straight to dedupe
+    public void submit(Alert alert) {
+        dedupe.submit(alert);
+    }
+
+    // wait until every stage has drained; stages are checked upstream first, since an item always
+    // reaches the next stage before its current stage counts it as processed
+    public boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (true) {
+            boolean idle = true;
+            for (PipelineStage<?> stage : stages()) {
+                if (!stage.isIdle()) {
+                    idle = false;
+                    break;
+                }
+            }
+            if (idle) return true;
+            if (System.currentTimeMillis() >= deadline) return false;
+            Thread.sleep(IDLE_POLL_MS);
+        }
+    }
+
+    public List<PipelineStage<?>> stages() {
+        return Arrays.asList(ingest, decode, dedupe, route, render, persist);
+    }
+
+    public void shutdown() {
+        for (PipelineStage<?> stage : stages()) {
+            stage.shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (PipelineStage<?> stage : stages()) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(stage);
+        }
+        sb.append(" superseded=").append(getSupersededRenders());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.sikad_notifier;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polling mode: every {@link #INTERVAL_MINUTES} minutes, runs the engine's {@link AlertBackfill}
+ * for alerts past the watermark (within the {@link MonitoringScope}), without any foreground
+ * service time.
+ */
+public class AlertPollWorker extends Worker {
+
+    private static final String TAG = "AlertPollWorker";
+
+    private static final String WORK_NAME = "alert_poll";
+
+    // WorkManager's minimum periodic interval
+    static final long INTERVAL_MINUTES = 15L;
+
+    // WorkManager stops a worker after 10 minutes
+    private static final long RUN_TIMEOUT_MINUTES = 9L;
+
+    public AlertPollWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        if (!context.getSharedPreferences("AdminSession", Context.MODE_PRIVATE)
+                .getBoolean("isLoggedIn", false)) {
+            cancel(context);
+            return Result.success();
+        }
+
+        // a poll is a small backfill: same paging, and anything more than a handful of alerts
+        // shows up under one summary notification instead of one notification each
+        CountDownLatch done = new CountDownLatch(1);
+        AlertEngine.get(context).backfill().run(done::countDown);
+        try {
+            if (!done.await(RUN_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                AppLog.w(TAG, "⚠️ Poll still running after {} min, leaving it to finish", RUN_TIMEOUT_MINUTES);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+
+        // conditions may allow streaming again; starting it fails harmlessly while we are in the background
+        ExecutionModeController.resumeStreaming(context);
+        return Result.success();
+    }
+
+    static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                AlertPollWorker.class, INTERVAL_MINUTES, TimeUnit.MINUTES)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    static void cancel(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(WORK_NAME);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.sikad_notifier;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Marks alerts resolved in bulk.
+ *
+ * Each open notifier_logs document is flipped to {@code resolved=true} together with the alerts
+ * document it was written for (its {@code alertId}), in WriteBatches of up to 500 writes that are
+ * committed in parallel. Resolving a storm of a few hundred alerts for one bike therefore costs
+ * one query plus one or two batch commits instead of one write per alert.
+ *
+ * Alerts documents that no longer exist are skipped, since one failed update would fail the whole
+ * batch. Resolving a single alert also leaves a resolution on its log document even if the log has
+ * not landed yet (the writer buffers for a few seconds); the create-only log write then fills in
+ * the record around it instead of overwriting it (see {@link NotifierLogWriter}).
+ */
+public class AlertResolver {
+
+    private static final String TAG = "AlertResolver";
+
+    // Firestore's WriteBatch limit; every log costs up to two writes (log + alert)
+    private static final int MAX_BATCH_WRITES = 500;
+    private static final int LOGS_PER_BATCH = MAX_BATCH_WRITES / 2;
+    // open logs fetched per query; more than this just takes another pass
+    private static final int QUERY_LIMIT = 1000;
+
+    private final FirebaseFirestore db;
+    private final CollectionReference alerts;
+    private final CollectionReference logs;
+
+    public AlertResolver(FirebaseFirestore db) {
+        this.db = db;
+        this.alerts = db.collection("alerts");
+        this.logs = db.collection("notifier_logs");
+    }
+
+    // resolve one alert and its log entries; completes with the number of logs resolved
+    public Task<Integer> resolveAlert(String alertId) {
+        Task<QuerySnapshot> logQuery = logs.whereEqualTo("alertId", alertId).get();
+        Task<DocumentSnapshot> alertDoc = alerts.document(alertId).get();
+        return Tasks.whenAll(logQuery, alertDoc).onSuccessTask(v -> {
+            long now = System.currentTimeMillis();
+            WriteBatch batch = db.batch();
+            if (alertDoc.getResult().exists()) {
+                batch.update(alerts.document(alertId), "resolved", true, "resolvedAt", now);
+            }
+            // the alert's own log, landed or not; merge so a log already written keeps its fields
+            Map<String, Object> resolution = new HashMap<>();
+            resolution.put("alertId", alertId);
+            resolution.put("resolved", true);
+            resolution.put("resolvedAt", now);
+            batch.set(logs.document(alertId), resolution, SetOptions.merge());
+            int resolved = 0;
+            for (DocumentSnapshot log : logQuery.getResult().getDocuments()) {
+                resolved++;
+                if (log.getId().equals(alertId)) continue;
+                batch.update(log.getReference(), "resolved", true, "resolvedAt", now);
+            }
+            int count = resolved;
+            return batch.commit().onSuccessTask(c -> Tasks.forResult(count));
+        });
+    }
+
+    // resolve every open alert for a bike; completes with the number of logs resolved
+    public Task<Integer> resolveBike(String bikeId) {
+        return resolveBike(bikeId, 0);
+    }
+
+    private Task<Integer> resolveBike(String bikeId, int resolvedSoFar) {
+        Query open = logs.whereEqualTo("bikeId", bikeId)
+                .whereEqualTo("resolved", false)
+                .limit(QUERY_LIMIT);
+        return open.get().onSuccessTask(snapshot -> {
+            List<DocumentSnapshot> docs = snapshot.getDocuments();
+            if (docs.isEmpty()) return Tasks.forResult(resolvedSoFar);
+
+            Task<Void> commits = commitResolved(docs, System.currentTimeMillis());
+            int total = resolvedSoFar + docs.size();
+            AppLog.d(TAG, "✅ Resolving {} alerts for {}", docs.size(), bikeId);
+
+            // resolved logs drop out of the query, so a full page means there may be more
+            return commits.onSuccessTask(v -> docs.size() < QUERY_LIMIT
+                    ? Tasks.forResult(total)
+                    : resolveBike(bikeId, total));
+        });
+    }
+
+    private Task<Void> commitResolved(List<DocumentSnapshot> docs, long now) {
+        List<Task<Void>> commits = new ArrayList<>();
+        for (int from = 0; from < docs.size(); from += LOGS_PER_BATCH) {
+            List<DocumentSnapshot> chunk = docs.subList(from, Math.min(from + LOGS_PER_BATCH, docs.size()));
+            commits.add(existingAlerts(chunk).onSuccessTask(existing -> {
+                WriteBatch batch = db.batch();
+                for (DocumentSnapshot log : chunk) {
+                    batch.update(log.getReference(), "resolved", true, "resolvedAt", now);
+                    String alertId = log.getString("alertId");
+                    if (alertId != null && existing.contains(alertId)) {
+                        batch.update(alerts.document(alertId), "resolved", true, "resolvedAt", now);
+                    }
+                }
+                return batch.commit();
+            }));
+        }
+        return Tasks.whenAll(commits);
+    }
+
+    // ids among the logs' alertIds that still have an alerts document, whereIn-sized lookups
+    private Task<Set<String>> existingAlerts(List<DocumentSnapshot> logs) {
+        List<String> ids = new ArrayList<>();
+        Set<String> seen = new LinkedHashSet<>();
+        for (DocumentSnapshot log : logs) {
+            String alertId = log.getString("alertId");
+            if (alertId != null && seen.add(alertId)) ids.add(alertId);
+        }
+        List<Task<QuerySnapshot>> lookups = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MonitoringScope.MAX_IN_VALUES) {
+            List<String> chunk = ids.subList(from, Math.min(from + MonitoringScope.MAX_IN_VALUES, ids.size()));
+            lookups.add(alerts.whereIn(FieldPath.documentId(), new ArrayList<>(chunk)).get());
+        }
+        return Tasks.whenAll(lookups).onSuccessTask(v -> {
+            Set<String> existing = new HashSet<>();
+            for (Task<QuerySnapshot> lookup : lookups) {
+                for (DocumentSnapshot alert : lookup.getResult().getDocuments()) existing.add(alert.getId());
+            }
+            return Tasks.forResult(existing);
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.sikad_notifier;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioManager;
+import android.media.Ringtone;
+import android.media.RingtoneManager;
+import android.media.SoundPool;
+import android.net.Uri;
+
+/**
+ * Low-latency alert sound.
+ *
+ * R.raw.alert is decoded once into a {@link SoundPool} when the engine starts, so playing it is
+ * a single call with no MediaPlayer allocation or blocking prepare(). Decoding is asynchronous:
+ * until it finishes (e.g. the first alert in a process just woken by a push) the same sound is
+ * played once through a {@link Ringtone} instead. Playback is skipped whenever the user would not
+ * expect a sound: Do Not Disturb, a silent/vibrate ringer, or the alert's channel turned off.
+ * Throttling is the caller's job (per {@link Severity}).
+ */
+public class AlertSoundPlayer {
+
+    private static final String TAG = "AlertSoundPlayer";
+
+    static final AudioAttributes ATTRIBUTES = new AudioAttributes.Builder()
+            .setUsage(AudioAttributes.USAGE_NOTIFICATION)
+            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+            .build();
+
+    private final NotificationManager notificationManager;
+    private final AudioManager audioManager;
+    private final String channelId;
+    private final SoundPool soundPool;
+    private final int soundId;
+    // played while the SoundPool sample is still decoding
+    private final Ringtone fallback;
+
+    private volatile boolean loaded = false;
+
+    public AlertSoundPlayer(Context context, String channelId) {
+        this.notificationManager = context.getSystemService(NotificationManager.class);
+        this.audioManager = context.getSystemService(AudioManager.class);
+        this.channelId = channelId;
+        fallback = RingtoneManager.getRingtone(context, soundUri(context));
+        if (fallback != null) fallback.setAudioAttributes(ATTRIBUTES);
+
+        soundPool = new SoundPool.Builder()
+                .setMaxStreams(2)
+                .setAudioAttributes(ATTRIBUTES)
+                .build();
+        soundPool.setOnLoadCompleteListener((pool, sampleId, status) -> {
+            loaded = status == 0;
+            if (!loaded) AppLog.e(TAG, "❌ Failed to decode alert sound (status {})", status);
+        });
+        soundId = soundPool.load(context, R.raw.alert, 1);
+    }
+
+    // R.raw.alert as a resource uri, for the fallback and for channels that play it themselves
+    static Uri soundUri(Context context) {
+        return Uri.parse("android.resource://" + context.getPackageName() + "/" + R.raw.alert);
+    }
+
+    // play the alert sound unless muted; returns whether it played
+    public boolean play() {
+        return play(channelId);
+    }
+
+    // play for an alert on channelId
+    public synchronized boolean play(String channelId) {
+        if (!soundAllowed(channelId)) return false;
+        if (loaded) return soundPool.play(soundId, 1f, 1f, 1, 0, 1f) != 0;
+        if (fallback == null) return false;
+        fallback.play();
+        return true;
+    }
+
+    private boolean soundAllowed(String channelId) {
+        if (!notificationManager.areNotificationsEnabled()) return false;
+        if (notificationManager.getCurrentInterruptionFilter() != NotificationManager.INTERRUPTION_FILTER_ALL) {
+            return false;
+        }
+        if (audioManager.getRingerMode() != AudioManager.RINGER_MODE_NORMAL) return false;
+
+        NotificationChannel channel = notificationManager.getNotificationChannel(channelId);
+        return channel != null && channel.getImportance() != NotificationManager.IMPORTANCE_NONE;
+    }
+
+    public void release() {
+        soundPool.release();
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.sikad_notifier;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Rolling-window subscription to the alerts collection.
+ *
+ * A single long-lived listener keeps every matching document in the SDK's query view, so the
+ * subscription is periodically swapped (after {@code windowMs} or {@code windowMaxDocs} added
+ * documents) for a fresh query anchored at the current watermark. The new listener is attached
+ * before the old one is removed, and the old one is only dropped once the new one has delivered
+ * a server snapshot, so there is no gap. Overlapping documents are filtered by the watermark.
+ * Only documents added after a window's first server snapshot count toward {@code windowMaxDocs}:
+ * the initial result is the backlog the window was anchored on, and counting it would make a
+ * lagging watermark re-anchor onto the same documents over and over.
+ *
+ * Both windows live in the shared {@link ListenerRegistry} (under {@code key} and
+ * {@code key + "#next"}), so the registry's count reflects the overlap while it lasts. The query
+ * is narrowed to one {@link MonitoringScope.Shard}; a scoped device runs one subscription per shard.
+ *
+ * Listener callbacks are delivered on {@code callbackExecutor} while the window timer runs on
+ * the main looper, so the bookkeeping below is synchronized.
+ */
+public class AlertSubscription implements ListenerSupervisor.Supervised {
+
+    private static final String TAG = "AlertSubscription";
+
+    private static final String PENDING_SUFFIX = "#next";
+
+    private final FirebaseFirestore db;
+    private final ListenerRegistry registry;
+    private final String key;
+    private final MonitoringScope.Shard shard;
+    private final AlertWatermark watermark;
+    private final Executor callbackExecutor;
+    private final EventListener<QuerySnapshot> delegate;
+    private final long windowMs;
+    private final int windowMaxDocs;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private int activeGeneration = 0;
+    private int pendingGeneration = 0;
+    private int generation = 0;
+    private int docsInWindow = 0;
+    // the active window has delivered its initial server snapshot
+    private boolean windowSynced = false;
+
+    private final Runnable windowTimeout = this::reanchor;
+
+    public AlertSubscription(FirebaseFirestore db, ListenerRegistry registry, String key,
+                             MonitoringScope.Shard shard, AlertWatermark watermark, long windowMs,
+                             int windowMaxDocs, Executor callbackExecutor,
+                             EventListener<QuerySnapshot> delegate) {
+        this.db = db;
+        this.registry = registry;
+        this.key = key;
+        this.shard = shard;
+        this.watermark = watermark;
+        this.windowMs = windowMs;
+        this.windowMaxDocs = windowMaxDocs;
+        this.callbackExecutor = callbackExecutor;
+        this.delegate = delegate;
+    }
+
+    // idempotent: does nothing while this subscription's listener is already live
+    @Override
+    public synchronized void start() {
+        if (registry.isActive(key)) return;
+        activeGeneration = ++generation;
+        windowSynced = false;
+        registry.attach(key, () -> attach(activeGeneration));
+        scheduleWindow();
+    }
+
+    @Override
+    public synchronized void stop() {
+        handler.removeCallbacks(windowTimeout);
+        registry.detach(key + PENDING_SUFFIX);
+        registry.detach(key);
+        pendingGeneration = 0;
+        docsInWindow = 0;
+    }
+
+    public boolean isActive() {
+        return registry.isActive(key);
+    }
+
+    private Query buildQuery() {
+        // alert timestamps are epoch millis (same as notifier_logs), so the range filter is numeric
+        return shard.apply(db.collection("alerts"))
+                .whereGreaterThanOrEqualTo("timestamp", watermark.get())
+                .orderBy("timestamp", Query.Direction.ASCENDING);
+    }
+
+    private ListenerRegistration attach(int gen) {
+        // metadata-only snapshots too, so cache/server switches (connection state) are visible
+        return buildQuery().addSnapshotListener(callbackExecutor, MetadataChanges.INCLUDE, (snapshots, e) -> {
+            if (snapshots != null) onWindowSnapshot(gen, snapshots);
+            delegate.onEvent(snapshots, e);
+        });
+    }
+
+    private synchronized void onWindowSnapshot(int gen, QuerySnapshot snapshots) {
+        boolean fromServer = !snapshots.getMetadata().isFromCache();
+        if (gen == pendingGeneration && fromServer) {
+            // this initial snapshot is the new window's starting point, not new traffic
+            promotePending();
+            return;
+        }
+        if (gen != activeGeneration) return;
+        if (windowSynced) {
+            countAdded(snapshots);
+        } else if (fromServer) {
+            windowSynced = true;
+        }
+    }
+
+    private void countAdded(QuerySnapshot snapshots) {
+        for (DocumentChange dc : snapshots.getDocumentChanges()) {
+            if (dc.getType() == DocumentChange.Type.ADDED) docsInWindow++;
+        }
+        if (docsInWindow >= windowMaxDocs) reanchor();
+    }
+
+    // open the next window at the current watermark; the old one stays live until it takes over
+    private synchronized void reanchor() {
+        if (!registry.isActive(key) || registry.isActive(key + PENDING_SUFFIX)) return;
+        handler.removeCallbacks(windowTimeout);
+        pendingGeneration = ++generation;
+        registry.attach(key + PENDING_SUFFIX, () -> attach(pendingGeneration));
+        AppLog.d(TAG, "🔄 Re-anchoring alert listener at {} after {} docs",
+                watermark.get(), docsInWindow);
+    }
+
+    private void promotePending() {
+        ListenerRegistration next = registry.take(key + PENDING_SUFFIX);
+        if (next == null) return;
+        registry.replace(key, next);
+        activeGeneration = pendingGeneration;
+        pendingGeneration = 0;
+        docsInWindow = 0;
+        windowSynced = true;
+        scheduleWindow();
+    }
+
+    private void scheduleWindow() {
+        handler.removeCallbacks(windowTimeout);
+        handler.postDelayed(windowTimeout, windowMs);
+    }
+}
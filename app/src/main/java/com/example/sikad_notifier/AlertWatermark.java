@@ -0,0 +1,69 @@
+package com.example.sikad_notifier;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Persisted resume point for the alerts subscription.
+ *
+ * Stores the highest alert timestamp processed so far plus the ids of the alerts that share
+ * exactly that timestamp, so a query on {@code timestamp >= watermark} can resume without
+ * re-notifying the boundary documents or skipping ones that landed in the same millisecond.
+ */
+public class AlertWatermark {
+
+    private static final String PREFS_NAME = "AlertWatermark";
+    private static final String KEY_TIMESTAMP = "timestamp";
+    private static final String KEY_BOUNDARY_IDS = "boundary_ids";
+
+    private final SharedPreferences store;
+
+    private long timestamp;
+    private final Set<String> boundaryIds = new HashSet<>();
+    private boolean dirty = false;
+
+    public AlertWatermark(Context context, long fallbackTimestamp) {
+        store = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        timestamp = store.getLong(KEY_TIMESTAMP, fallbackTimestamp);
+        boundaryIds.addAll(store.getStringSet(KEY_BOUNDARY_IDS, new HashSet<>()));
+    }
+
+    public synchronized long get() {
+        return timestamp;
+    }
+
+    // true if the alert is past the watermark and has not been processed yet
+    public synchronized boolean isNew(String alertId, long alertTimestamp) {
+        if (alertTimestamp > timestamp) return true;
+        return alertTimestamp == timestamp && !boundaryIds.contains(alertId);
+    }
+
+    public synchronized void advance(String alertId, long alertTimestamp) {
+        if (alertTimestamp > timestamp) {
+            timestamp = alertTimestamp;
+            boundaryIds.clear();
+            boundaryIds.add(alertId);
+            dirty = true;
+        } else if (alertTimestamp == timestamp && boundaryIds.add(alertId)) {
+            dirty = true;
+        }
+    }
+
+    // write the watermark to disk; called once per snapshot instead of once per alert
+    public synchronized void commit() {
+        if (!dirty) return;
+        store.edit()
+                .putLong(KEY_TIMESTAMP, timestamp)
+                .putStringSet(KEY_BOUNDARY_IDS, new HashSet<>(boundaryIds))
+                .apply();
+        dirty = false;
+    }
+
+    // forget the resume point (e.g. on logout) so the next session starts from "now"
+    public static void clear(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.sikad_notifier;
+
+import android.util.Log;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Project logging facade over {@link android.util.Log}.
+ *
+ * Messages are templates with {@code {}} placeholders that are only filled in when the message
+ * is actually emitted, so a suppressed log costs a level check and no string building. The
+ * fixed-arity overloads avoid varargs arrays on the hot path. Levels can be set per tag; the
+ * default is DEBUG in debug builds and INFO in release builds. Release builds additionally strip
+ * every {@code v}/{@code d} call at compile time (see proguard-rules.pro).
+ */
+public final class AppLog {
+
+    private static volatile int defaultLevel = BuildConfig.DEBUG ? Log.DEBUG : Log.INFO;
+    private static final ConcurrentHashMap<String, Integer> tagLevels = new ConcurrentHashMap<>();
+
+    private AppLog() {
+    }
+
+    public static void setDefaultLevel(int level) {
+        defaultLevel = level;
+    }
+
+    public static void setLevel(String tag, int level) {
+        tagLevels.put(tag, level);
+    }
+
+    public static boolean isLoggable(String tag, int level) {
+        Integer tagLevel = tagLevels.get(tag);
+        return level >= (tagLevel != null ? tagLevel : defaultLevel);
+    }
+
+    // VERBOSE
+
+    public static void v(String tag, String msg) {
+        if (isLoggable(tag, Log.VERBOSE)) Log.v(tag, msg);
+    }
+
+    public static void v(String tag, String fmt, Object a) {
+        if (isLoggable(tag, Log.VERBOSE)) Log.v(tag, format(fmt, a, null, null, 1));
+    }
+
+    public static void v(String tag, String fmt, Object a, Object b) {
+        if (isLoggable(tag, Log.VERBOSE)) Log.v(tag, format(fmt, a, b, null, 2));
+    }
+
+    // DEBUG
+
+    public static void d(String tag, String msg) {
+        if (isLoggable(tag, Log.DEBUG)) Log.d(tag, msg);
+    }
+
+    public static void d(String tag, String fmt, Object a) {
+        if (isLoggable(tag, Log.DEBUG)) Log.d(tag, format(fmt, a, null, null, 1));
+    }
+
+    public static void d(String tag, String fmt, Object a, Object b) {
+        if (isLoggable(tag, Log.DEBUG)) Log.d(tag, format(fmt, a, b, null, 2));
+    }
+
+    public static void d(String tag, String fmt, Object a, Object b, Object c) {
+        if (isLoggable(tag, Log.DEBUG)) Log.d(tag, format(fmt, a, b, c, 3));
+    }
+
+    // INFO
+
+    public static void i(String tag, String msg) {
+        if (isLoggable(tag, Log.INFO)) Log.i(tag, msg);
+    }
+
+    public static void i(String tag, String fmt, Object a) {
+        if (isLoggable(tag, Log.INFO)) Log.i(tag, format(fmt, a, null, null, 1));
+    }
+
+    public static void i(String tag, String fmt, Object a, Object b) {
+        if (isLoggable(tag, Log.INFO)) Log.i(tag, format(fmt, a, b, null, 2));
+    }
+
+    public static void i(String tag, String fmt, Object a, Object b, Object c) {
+        if (isLoggable(tag, Log.INFO)) Log.i(tag, format(fmt, a, b, c, 3));
+    }
+
+    // WARN
+
+    public static void w(String tag, String msg) {
+        if (isLoggable(tag, Log.WARN)) Log.w(tag, msg);
+    }
+
+    public static void w(String tag, String msg, Throwable tr) {
+        if (isLoggable(tag, Log.WARN)) Log.w(tag, msg, tr);
+    }
+
+    public static void w(String tag, String fmt, Object a) {
+        if (isLoggable(tag, Log.WARN)) Log.w(tag, format(fmt, a, null, null, 1));
+    }
+
+    public static void w(String tag, String fmt, Object a, Throwable tr) {
+        if (isLoggable(tag, Log.WARN)) Log.w(tag, format(fmt, a, null, null, 1), tr);
+    }
+
+    public static void w(String tag, String fmt, Object a, Object b, Object c) {
+        if (isLoggable(tag, Log.WARN)) Log.w(tag, format(fmt, a, b, c, 3));
+    }
+
+    // ERROR
+
+    public static void e(String tag, String msg) {
+        if (isLoggable(tag, Log.ERROR)) Log.e(tag, msg);
+    }
+
+    public static void e(String tag, String msg, Throwable tr) {
+        if (isLoggable(tag, Log.ERROR)) Log.e(tag, msg, tr);
+    }
+
+    public static void e(String tag, String fmt, Object a) {
+        if (isLoggable(tag, Log.ERROR)) Log.e(tag, format(fmt, a, null, null, 1));
+    }
+
+    public static void e(String tag, String fmt, Object a, Throwable tr) {
+        if (isLoggable(tag, Log.ERROR)) Log.e(tag, format(fmt, a, null, null, 1), tr);
+    }
+
+    // substitute up to three {} placeholders in order
+    static String format(String fmt, Object a, Object b, Object c, int argCount) {
+        StringBuilder sb = new StringBuilder(fmt.length() + 16 * argCount);
+        int arg = 0;
+        int from = 0;
+        int at;
+        while (arg < argCount && (at = fmt.indexOf("{}", from)) >= 0) {
+            sb.append(fmt, from, at);
+            sb.append(arg == 0 ? a : arg == 1 ? b : c);
+            arg++;
+            from = at + 2;
+        }
+        sb.append(fmt, from, fmt.length());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.sikad_notifier;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-bike token buckets, so one flapping sensor cannot flood the shade or the log.
+ *
+ * Each {@link BikeStateTable} handle has a bucket of {@code burst} tokens refilled at
+ * {@code ratePerMinute}; an alert that finds the bucket empty is suppressed and counted. The
+ * count is handed to the bike's next admitted alert ({@link #drainSuppressed}), which then
+ * stands for itself plus everything suppressed before it. A bike that goes quiet while limited
+ * never sends that alert, so its count is handed over on the caller's tick ({@link #drainQuiet}).
+ *
+ * A bucket is one long (refill time in the high bits, milli-tokens in the low
+ * {@link #TOKEN_BITS}) updated with compare-and-set, so there are no locks and no allocation.
+ * Time is the alert's own timestamp, so a backlog replayed in one go is judged by the rate at
+ * which the bike actually sent it.
+ */
+public class BikeRateLimiter {
+
+    private static final int TOKEN_BITS = 20;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long MILLI = 1000L;
+
+    private final long capacityMilli;
+    // milli-tokens regained per millisecond, times 1000 to stay in integers
+    private final long refillPerMs;
+
+    // 0 = bucket not used yet (full)
+    private final AtomicLongArray buckets;
+    private final AtomicLongArray suppressed;
+
+    // suppressed counts as of the previous drainQuiet call (tick thread only)
+    private final long[] seenSuppressed;
+
+    private final AtomicLong admittedTotal = new AtomicLong();
+    private final AtomicLong suppressedTotal = new AtomicLong();
+
+    public BikeRateLimiter(int burst, int ratePerMinute) {
+        if (burst < 1 || burst * MILLI > TOKEN_MASK) throw new IllegalArgumentException("burst out of range: " + burst);
+        if (ratePerMinute < 1) throw new IllegalArgumentException("rate must be positive: " + ratePerMinute);
+        capacityMilli = burst * MILLI;
+        refillPerMs = ratePerMinute * MILLI * MILLI / 60_000L;
+        buckets = new AtomicLongArray(BikeStateTable.CAPACITY);
+        suppressed = new AtomicLongArray(BikeStateTable.CAPACITY);
+        seenSuppressed = new long[BikeStateTable.CAPACITY];
+    }
+
+    public interface QuietBike {
+        void flush(int handle, long suppressed);
+    }
+
+    // take one token for the bike at time ts; false means the alert is suppressed
+    public boolean tryAcquire(int handle, long ts) {
+        while (true) {
+            long current = buckets.get(handle);
+            long tokens;
+            long refilledAt;
+            if (current == 0L) {
+                tokens = capacityMilli;
+                refilledAt = ts;
+            } else {
+                refilledAt = current >>> TOKEN_BITS;
+                tokens = current & TOKEN_MASK;
+                if (ts > refilledAt) {
+                    long gained = (ts - refilledAt) * refillPerMs / MILLI;
+                    if (tokens + gained >= capacityMilli) {
+                        tokens = capacityMilli;
+                        refilledAt = ts;
+                    } else {
+                        // only the time that became whole milli-tokens is used up; the remainder
+                        // carries over, so alerts closer together than one milli-token still refill
+                        tokens += gained;
+                        refilledAt += (gained * MILLI + refillPerMs - 1) / refillPerMs;
+                    }
+                }
+            }
+
+            boolean admitted = tokens >= MILLI;
+            if (admitted) tokens -= MILLI;
+            long next = (refilledAt << TOKEN_BITS) | tokens;
+            if (next == 0L) next = 1L; // never store the "unused" marker
+            if (buckets.compareAndSet(handle, current, next)) {
+                if (admitted) {
+                    admittedTotal.incrementAndGet();
+                } else {
+                    suppressed.incrementAndGet(handle);
+                    suppressedTotal.incrementAndGet();
+                }
+                return admitted;
+            }
+        }
+    }
+
+    // alerts suppressed for the bike since the last call
+    public long drainSuppressed(int handle) {
+        return suppressed.getAndSet(handle, 0L);
+    }
+
+    // tick: drain the bikes among the first `handles` whose suppressed count has not moved since the
+    // previous call; they went quiet and no admitted alert is coming to carry the count
+    public void drainQuiet(int handles, QuietBike out) {
+        for (int handle = 0; handle < handles; handle++) {
+            long count = suppressed.get(handle);
+            if (count == 0L || count != seenSuppressed[handle]) {
+                seenSuppressed[handle] = count;
+                continue;
+            }
+            seenSuppressed[handle] = 0L;
+            long drained = suppressed.getAndSet(handle, 0L);
+            if (drained > 0L) out.flush(handle, drained);
+        }
+    }
+
+    public long getSuppressedTotal() {
+        return suppressedTotal.get();
+    }
+
+    @Override
+    public String toString() {
+        return "BikeRateLimiter{admitted=" + admittedTotal.get() + " suppressed=" + suppressedTotal.get() + "}";
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.sikad_notifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Process-wide, fixed-size table of the bikes that have raised alerts.
+ *
+ * Bike ids are interned once into dense int handles (open addressing, no per-entry objects), so
+ * the storm detector and the rate limiter can keep their per-bike state in plain arrays indexed by
+ * handle. The table itself only remembers each bike's id and last alert time, which the
+ * suppressed-alert log needs. Updating a bike is O(1) with no allocation and readers never take a
+ * lock. Memory is allocated up front for {@link #CAPACITY} bikes; once full, new bikes are not
+ * tracked and {@link #intern} returns -1.
+ *
+ * {@link #record} is called from the route stage only; the other accessors from any thread.
+ */
+public final class BikeStateTable {
+
+    public static final int CAPACITY = 16384;
+
+    private static final int SLOTS = CAPACITY * 2; // keeps the probe table at most half full
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private static volatile BikeStateTable instance;
+
+    // intern table: slot -> bike id / handle
+    private final AtomicReferenceArray<String> slotKeys = new AtomicReferenceArray<>(SLOTS);
+    private final AtomicIntegerArray slotHandles = new AtomicIntegerArray(SLOTS);
+
+    // per-handle state
+    private final AtomicReferenceArray<String> bikeIds = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLongArray lastAlertTs = new AtomicLongArray(CAPACITY);
+
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    public static BikeStateTable get() {
+        if (instance == null) {
+            synchronized (BikeStateTable.class) {
+                if (instance == null) instance = new BikeStateTable();
+            }
+        }
+        return instance;
+    }
+
+    // tests use their own table; the app shares get()
+    BikeStateTable() {
+    }
+
+    // handle for bikeId, or -1 if the bike has never been seen
+    public int lookup(String bikeId) {
+        int slot = spread(bikeId.hashCode()) & SLOT_MASK;
+        while (true) {
+            String key = slotKeys.get(slot);
+            if (key == null) return -1;
+            if (key.equals(bikeId)) return slotHandles.get(slot);
+            slot = (slot + 1) & SLOT_MASK;
+        }
+    }
+
+    // handle for bikeId, assigning a new one on first sight; -1 once the table is full
+    public int intern(String bikeId) {
+        int handle = lookup(bikeId);
+        if (handle >= 0) return handle;
+
+        synchronized (this) {
+            int slot = spread(bikeId.hashCode()) & SLOT_MASK;
+            String key;
+            while ((key = slotKeys.get(slot)) != null) {
+                if (key.equals(bikeId)) return slotHandles.get(slot);
+                slot = (slot + 1) & SLOT_MASK;
+            }
+            handle = size.get();
+            if (handle >= CAPACITY) {
+                rejected.incrementAndGet();
+                return -1;
+            }
+            // publish the handle's id and the slot's handle before the key makes them visible
+            bikeIds.set(handle, bikeId);
+            slotHandles.set(slot, handle);
+            slotKeys.set(slot, bikeId);
+            size.set(handle + 1);
+            return handle;
+        }
+    }
+
+    // record one alert for bikeId at time ts (route stage); returns its handle or -1
+    public int record(String bikeId, long ts) {
+        int handle = intern(bikeId);
+        if (handle < 0) return -1;
+        if (ts > lastAlertTs.get(handle)) lastAlertTs.set(handle, ts);
+        return handle;
+    }
+
+    // number of interned bikes; handles 0 .. size()-1 are valid
+    public int size() {
+        return size.get();
+    }
+
+    public String bikeId(int handle) {
+        return bikeIds.get(handle);
+    }
+
+    public long lastAlertTime(int handle) {
+        return lastAlertTs.get(handle);
+    }
+
+    public int rejectedCount() {
+        return rejected.get();
+    }
+
+    // murmur3 finalizer bits so clustered String hashes spread across the probe table
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "bikes=" + size() + "/" + CAPACITY + " rejected=" + rejectedCount();
+    }
+}
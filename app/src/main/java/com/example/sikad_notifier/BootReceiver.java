@@ -3,8 +3,6 @@ package com.example.sikad_notifier;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
-import android.util.Log;
 
 public class BootReceiver extends BroadcastReceiver {
     private static final String TAG = "BootReceiver";
@@ -12,15 +10,9 @@ public class BootReceiver extends BroadcastReceiver {
     @Override
     public void onReceive(Context context, Intent intent) {
         if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
-            Log.d(TAG, "🔁 Device rebooted — restarting alert listener service...");
-
-            Intent serviceIntent = new Intent(context, AlertListenerService.class);
-
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                context.startForegroundService(serviceIntent);
-            } else {
-                context.startService(serviceIntent);
-            }
+            AppLog.d(TAG, "🔁 Device rebooted — restarting alert delivery...");
+            // no foreground service from BOOT_COMPLETED on Android 15: streaming resumes once the app is opened
+            AlertDelivery.start(context, false);
         }
     }
 }
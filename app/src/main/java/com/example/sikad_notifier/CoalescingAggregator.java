@@ -0,0 +1,133 @@
+package com.example.sikad_notifier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-bike alert coalescing.
+ *
+ * Each bike has its own window of {@code windowMs}: the first alert opens it, later alerts inside
+ * it only bump the count and last-seen time. Window state is an immutable {@link Window} swapped
+ * with compare-and-set, so counts stay exact when several threads record alerts at once and
+ * readers (render stage, UI) never block writers.
+ *
+ * A bike keeps its notification id for as long as it is tracked. Once it has been quiet for a full
+ * window, {@link #expire} forgets it and hands its id back for the caller to cancel; the id is then
+ * reused by the next bike, so ids stay within a small fixed range instead of growing forever.
+ */
+public class CoalescingAggregator {
+
+    // immutable per-bike window state
+    public static final class Window {
+        public final String bikeId;
+        public final int notificationId;
+        public final int count;
+        public final long firstTs;
+        public final long lastTs;
+        public final String lastAlertId;
+        public final String lastMessage;
+        // alerts rate-limited away in this window (on top of count)
+        public final long suppressed;
+
+        Window(String bikeId, int notificationId, int count, long firstTs, long lastTs,
+               String lastAlertId, String lastMessage, long suppressed) {
+            this.bikeId = bikeId;
+            this.notificationId = notificationId;
+            this.count = count;
+            this.firstTs = firstTs;
+            this.lastTs = lastTs;
+            this.lastAlertId = lastAlertId;
+            this.lastMessage = lastMessage;
+            this.suppressed = suppressed;
+        }
+
+        // first alert of a fresh window
+        public boolean isNew() {
+            return count == 1;
+        }
+    }
+
+    private static final class Slot {
+        final AtomicReference<Window> window = new AtomicReference<>();
+        final int notificationId;
+
+        Slot(int notificationId) {
+            this.notificationId = notificationId;
+        }
+    }
+
+    private final long windowMs;
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger nextNotificationId;
+    // ids of expired bikes, reused before drawing new ones; kept per aggregator so an id always
+    // belongs to the same severity (and channel)
+    private final ConcurrentLinkedQueue<Integer> freeNotificationIds = new ConcurrentLinkedQueue<>();
+
+    public CoalescingAggregator(long windowMs, int firstNotificationId) {
+        this(windowMs, new AtomicInteger(firstNotificationId));
+    }
+
+    // several aggregators (one per severity) can share one notification id sequence
+    public CoalescingAggregator(long windowMs, AtomicInteger notificationIds) {
+        this.windowMs = windowMs;
+        this.nextNotificationId = notificationIds;
+    }
+
+    // record one alert for bikeId at time now, standing in for `suppressed` rate-limited ones;
+    // returns the bike's updated window
+    public Window record(String bikeId, String alertId, String message, long suppressed, long now) {
+        Slot slot = slots.computeIfAbsent(bikeId, id -> new Slot(allocateNotificationId()));
+        while (true) {
+            Window current = slot.window.get();
+            Window next;
+            if (current == null || now - current.firstTs > windowMs) {
+                next = new Window(bikeId, slot.notificationId, 1, now, now, alertId, message, suppressed);
+            } else {
+                next = new Window(bikeId, slot.notificationId, current.count + 1,
+                        current.firstTs, Math.max(current.lastTs, now), alertId, message,
+                        current.suppressed + suppressed);
+            }
+            if (slot.window.compareAndSet(current, next)) return next;
+        }
+    }
+
+    // windows still open at time now, most recently active first
+    public List<Window> activeWindows(long now) {
+        List<Window> result = new ArrayList<>();
+        for (Slot slot : slots.values()) {
+            Window w = slot.window.get();
+            if (w != null && now - w.firstTs <= windowMs) result.add(w);
+        }
+        Collections.sort(result, (a, b) -> Long.compare(b.lastTs, a.lastTs));
+        return result;
+    }
+
+    // drop bikes that have been quiet for a full window so the map does not grow forever; returns
+    // the notification ids they held, which the caller should cancel before they are reused
+    public List<Integer> expire(long now) {
+        List<Integer> freed = new ArrayList<>();
+        for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+            Window w = entry.getValue().window.get();
+            if (w != null && now - w.lastTs > windowMs && slots.remove(entry.getKey(), entry.getValue())) {
+                freed.add(entry.getValue().notificationId);
+            }
+        }
+        freeNotificationIds.addAll(freed);
+        return freed;
+    }
+
+    private int allocateNotificationId() {
+        Integer free = freeNotificationIds.poll();
+        return free != null ? free : nextNotificationId.getAndIncrement();
+    }
+
+    public int trackedBikes() {
+        return slots.size();
+    }
+}
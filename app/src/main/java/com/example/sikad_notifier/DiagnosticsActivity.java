@@ -0,0 +1,56 @@
+package com.example.sikad_notifier;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Shows the {@link MetricsRegistry} report (alert latency percentiles, throughput, engine gauges)
+ * and exports it to a file so numbers can be compared across app versions.
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+
+    private static final String TAG = "DiagnosticsActivity";
+
+    private TextView diagnosticsText;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+
+        diagnosticsText = findViewById(R.id.diagnosticsText);
+
+        Button refreshButton = findViewById(R.id.refreshButton);
+        refreshButton.setOnClickListener(v -> refresh());
+
+        Button exportButton = findViewById(R.id.exportButton);
+        exportButton.setOnClickListener(v -> export());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    private void refresh() {
+        diagnosticsText.setText(MetricsRegistry.get().report());
+    }
+
+    private void export() {
+        try {
+            File file = MetricsRegistry.get().export(this);
+            Toast.makeText(this, "Saved to " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            AppLog.e(TAG, "❌ Failed to export metrics", e);
+            Toast.makeText(this, "Export failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.sikad_notifier;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+
+import androidx.core.content.ContextCompat;
+
+/**
+ * Decides how the streaming delivery preference is actually carried out.
+ *
+ * Android 15 caps dataSync foreground services at 6 hours per 24 hours; when the cap is hit the
+ * system calls {@code Service.onTimeout} and the service must stop. This controller keeps a
+ * running account of our foreground time and picks between streaming (the foreground service,
+ * ~1s alert latency) and polling ({@link AlertPollWorker} every 15 minutes, no foreground time)
+ * from the remaining budget, screen state and battery. Push delivery needs neither. Losing the
+ * network does not change the mode: the stream reconnects by itself, and a poll could not run.
+ *
+ * Polling is not sticky: while it lasts, the screen turning on, the charger being plugged in and
+ * every poll run check whether streaming is allowed again. A foreground service can only be
+ * started while the app is exempt from background-start restrictions, so such an attempt may be
+ * refused; polling then simply continues until the next check or the app is opened.
+ */
+public final class ExecutionModeController {
+
+    private static final String TAG = "ExecutionModeController";
+
+    public enum Mode {
+        PUSH(5_000L),
+        STREAMING(1_000L),
+        POLLING(AlertPollWorker.INTERVAL_MINUTES * 60_000L);
+
+        // typical worst-case delay from an alert being written to the admin being notified
+        public final long expectedLatencyMs;
+
+        Mode(long expectedLatencyMs) {
+            this.expectedLatencyMs = expectedLatencyMs;
+        }
+    }
+
+    // Android 15 dataSync limit, tracked over a rolling day
+    static final long FGS_DAILY_LIMIT_MS = 6 * 60 * 60 * 1000L;
+    private static final long BUDGET_WINDOW_MS = 24 * 60 * 60 * 1000L;
+    // below this much budget, stop streaming while the screen is off and save it for active use
+    private static final long SCREEN_OFF_RESERVE_MS = 2 * 60 * 60 * 1000L;
+    private static final int LOW_BATTERY_PERCENT = 15;
+
+    private static final String PREFS = "ExecutionMode";
+    private static final String KEY_MODE = "mode";
+    private static final String KEY_WINDOW_START = "window_start";
+    private static final String KEY_USED_MS = "used_ms";
+    private static final String KEY_FGS_STARTED_AT = "fgs_started_at";
+    private static final String KEY_TIMED_OUT = "timed_out";
+
+    private ExecutionModeController() {
+    }
+
+    public static Mode getActiveMode(Context context) {
+        String mode = prefs(context).getString(KEY_MODE, null);
+        if (mode == null) return AlertDelivery.getMode(context) == AlertDelivery.Mode.PUSH ? Mode.PUSH : Mode.STREAMING;
+        try {
+            return Mode.valueOf(mode);
+        } catch (IllegalArgumentException e) {
+            return Mode.STREAMING;
+        }
+    }
+
+    // foreground time left in the current budget window
+    public static synchronized long remainingBudgetMs(Context context) {
+        SharedPreferences prefs = prefs(context);
+        long now = System.currentTimeMillis();
+        rollWindow(prefs, now);
+        long used = prefs.getLong(KEY_USED_MS, 0L);
+        long startedAt = prefs.getLong(KEY_FGS_STARTED_AT, 0L);
+        if (startedAt > 0L) used += now - startedAt;
+        return Math.max(0L, FGS_DAILY_LIMIT_MS - used);
+    }
+
+    // streaming vs polling for the current device conditions
+    public static Mode choose(Context context) {
+        if (prefs(context).getBoolean(KEY_TIMED_OUT, false)) return Mode.POLLING;
+
+        long remaining = remainingBudgetMs(context);
+        if (remaining <= 0L) return Mode.POLLING;
+
+        BatteryManager battery = context.getSystemService(BatteryManager.class);
+        PowerManager power = context.getSystemService(PowerManager.class);
+        boolean charging = battery.isCharging();
+        if (charging) return Mode.STREAMING;
+
+        int percent = battery.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+        if (power.isPowerSaveMode() || (percent > 0 && percent <= LOW_BATTERY_PERCENT)) return Mode.POLLING;
+        if (!power.isInteractive() && remaining < SCREEN_OFF_RESERVE_MS) return Mode.POLLING;
+        return Mode.STREAMING;
+    }
+
+    // carry out the streaming preference; only start the service from exempt entry points (a
+    // visible activity). Boot and async callbacks pass false: Android 15 refuses a dataSync
+    // foreground service from BOOT_COMPLETED and from the background.
+    static void apply(Context context, boolean mayStartForeground) {
+        Mode mode = choose(context);
+        if (mode != Mode.STREAMING || !mayStartForeground) {
+            switchToPolling(context);
+            return;
+        }
+        try {
+            context.startForegroundService(new Intent(context, AlertListenerService.class));
+        } catch (IllegalStateException e) {
+            // ForegroundServiceStartNotAllowedException: the app was not as exempt as the caller thought
+            AppLog.w(TAG, "⚠️ Foreground service start not allowed, polling instead", e);
+            switchToPolling(context);
+            return;
+        }
+        AlertPollWorker.cancel(context);
+        unwatchResume(context);
+        setActiveMode(context, Mode.STREAMING);
+        AppLog.d(TAG, "▶️ Streaming ({} min foreground budget left)", remainingBudgetMs(context) / 60_000L);
+    }
+
+    static void switchToPolling(Context context) {
+        if (getActiveMode(context) != Mode.POLLING) {
+            AppLog.i(TAG, "⏱️ Switching to polling every {} min", AlertPollWorker.INTERVAL_MINUTES);
+        }
+        setActiveMode(context, Mode.POLLING);
+        context.stopService(new Intent(context, AlertListenerService.class));
+        AlertPollWorker.schedule(context);
+        watchResume(context);
+    }
+
+    // back to streaming if we are polling only because of conditions that have since passed
+    static void resumeStreaming(Context context) {
+        Context app = context.getApplicationContext();
+        if (!app.getSharedPreferences("AdminSession", Context.MODE_PRIVATE).getBoolean("isLoggedIn", false)) return;
+        if (AlertDelivery.getMode(app) != AlertDelivery.Mode.STREAM) return;
+        if (getActiveMode(app) != Mode.POLLING || choose(app) != Mode.STREAMING) return;
+        AppLog.i(TAG, "🔁 Conditions allow streaming again, resuming");
+        apply(app, true);
+    }
+
+    static void usePush(Context context) {
+        AlertPollWorker.cancel(context);
+        unwatchResume(context);
+        setActiveMode(context, Mode.PUSH);
+    }
+
+    static void stop(Context context) {
+        AlertPollWorker.cancel(context);
+        unwatchResume(context);
+        prefs(context).edit().remove(KEY_MODE).apply();
+    }
+
+    // screen-on cannot be declared in the manifest, so listen for it while polling in this process;
+    // after a process restart the poll worker's own check covers it
+    private static BroadcastReceiver resumeReceiver;
+
+    private static synchronized void watchResume(Context context) {
+        if (resumeReceiver != null) return;
+        resumeReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context ctx, Intent intent) {
+                AppLog.d(TAG, "🔋 {} while polling", intent.getAction());
+                resumeStreaming(ctx);
+            }
+        };
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_POWER_CONNECTED);
+        ContextCompat.registerReceiver(context.getApplicationContext(), resumeReceiver, filter,
+                ContextCompat.RECEIVER_NOT_EXPORTED);
+    }
+
+    private static synchronized void unwatchResume(Context context) {
+        if (resumeReceiver == null) return;
+        context.getApplicationContext().unregisterReceiver(resumeReceiver);
+        resumeReceiver = null;
+    }
+
+    // foreground accounting, from AlertListenerService
+
+    static synchronized void onForegroundStarted(Context context) {
+        SharedPreferences prefs = prefs(context);
+        long now = System.currentTimeMillis();
+        // a start left open by a killed process is counted up to now, erring on the safe side
+        settle(prefs, now);
+        prefs.edit().putLong(KEY_FGS_STARTED_AT, now).apply();
+    }
+
+    static synchronized void onForegroundStopped(Context context) {
+        settle(prefs(context), System.currentTimeMillis());
+    }
+
+    static synchronized void onTimeout(Context context) {
+        SharedPreferences prefs = prefs(context);
+        settle(prefs, System.currentTimeMillis());
+        prefs.edit().putBoolean(KEY_TIMED_OUT, true).apply();
+    }
+
+    // the platform resets the limit once the user brings the app to the foreground
+    public static synchronized void onAppForeground(Context context) {
+        SharedPreferences prefs = prefs(context);
+        long now = System.currentTimeMillis();
+        long startedAt = prefs.getLong(KEY_FGS_STARTED_AT, 0L);
+        prefs.edit()
+                .putLong(KEY_WINDOW_START, now)
+                .putLong(KEY_USED_MS, 0L)
+                .putLong(KEY_FGS_STARTED_AT, startedAt > 0L ? now : 0L)
+                .putBoolean(KEY_TIMED_OUT, false)
+                .apply();
+    }
+
+    private static void settle(SharedPreferences prefs, long now) {
+        rollWindow(prefs, now);
+        long startedAt = prefs.getLong(KEY_FGS_STARTED_AT, 0L);
+        if (startedAt <= 0L) return;
+        long used = prefs.getLong(KEY_USED_MS, 0L) + Math.max(0L, now - startedAt);
+        prefs.edit().putLong(KEY_USED_MS, used).putLong(KEY_FGS_STARTED_AT, 0L).apply();
+    }
+
+    private static void rollWindow(SharedPreferences prefs, long now) {
+        long windowStart = prefs.getLong(KEY_WINDOW_START, 0L);
+        if (now - windowStart < BUDGET_WINDOW_MS) return;
+        long startedAt = prefs.getLong(KEY_FGS_STARTED_AT, 0L);
+        prefs.edit()
+                .putLong(KEY_WINDOW_START, now)
+                .putLong(KEY_USED_MS, 0L)
+                // a session still running carries over from the start of the new window
+                .putLong(KEY_FGS_STARTED_AT, startedAt > 0L ? now : 0L)
+                .putBoolean(KEY_TIMED_OUT, false)
+                .apply();
+    }
+
+    private static void setActiveMode(Context context, Mode mode) {
+        prefs(context).edit().putString(KEY_MODE, mode.name()).apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.sikad_notifier;
+
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Keeps at most one live Firestore listener per query key.
+ *
+ * {@link #attach} is idempotent: a second attach for a key that is already live returns the
+ * existing registration instead of opening another watch, so repeated service starts cannot
+ * stack duplicate listeners.
+ */
+public class ListenerRegistry {
+
+    private final Map<String, ListenerRegistration> listeners = new HashMap<>();
+
+    public synchronized ListenerRegistration attach(String key, Supplier<ListenerRegistration> factory) {
+        ListenerRegistration existing = listeners.get(key);
+        if (existing != null) return existing;
+        ListenerRegistration registration = factory.get();
+        listeners.put(key, registration);
+        return registration;
+    }
+
+    // install a registration under key, removing whatever was live there before
+    public synchronized void replace(String key, ListenerRegistration registration) {
+        ListenerRegistration old = listeners.put(key, registration);
+        if (old != null && old != registration) old.remove();
+    }
+
+    // hand a registration over to the caller without removing it from Firestore
+    public synchronized ListenerRegistration take(String key) {
+        return listeners.remove(key);
+    }
+
+    public synchronized void detach(String key) {
+        ListenerRegistration registration = listeners.remove(key);
+        if (registration != null) registration.remove();
+    }
+
+    public synchronized void detachAll() {
+        for (ListenerRegistration registration : listeners.values()) {
+            registration.remove();
+        }
+        listeners.clear();
+    }
+
+    public synchronized boolean isActive(String key) {
+        return listeners.containsKey(key);
+    }
+
+    public synchronized int activeCount() {
+        return listeners.size();
+    }
+
+    public synchronized Set<String> activeKeys() {
+        return new HashSet<>(listeners.keySet());
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.sikad_notifier;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps a Firestore subscription alive.
+ *
+ * A snapshot listener that reports an error is dead for good, so the supervisor classifies the
+ * error and resubscribes after a delay: transient errors (network, server overload) back off
+ * exponentially from {@link #BASE_DELAY_MS} up to {@link #MAX_DELAY_MS}, configuration errors
+ * (permissions, missing index, bad query) retry only every {@link #SLOW_RETRY_MS}. Delays use full
+ * jitter so a backend outage does not end in every admin phone reconnecting at the same instant.
+ *
+ * It also tracks connection state from snapshot metadata (server vs cache-only) and the time
+ * spent disconnected. Sits between the subscription and the real listener as an
+ * {@link EventListener}; call {@link #supervise} once the subscription exists.
+ */
+public class ListenerSupervisor implements EventListener<QuerySnapshot> {
+
+    private static final String TAG = "ListenerSupervisor";
+
+    private static final long BASE_DELAY_MS = 1000L;
+    private static final long MIN_DELAY_MS = 500L;
+    private static final long MAX_DELAY_MS = 5 * 60 * 1000L;
+    private static final long SLOW_RETRY_MS = 15 * 60 * 1000L;
+    // a listener that stayed connected this long starts over at the base delay when it next fails
+    private static final long STABLE_MS = 60 * 1000L;
+
+    public enum State {
+        STOPPED,      // not supervising
+        CONNECTING,   // (re)subscribed, no server snapshot yet
+        CONNECTED,    // last snapshot came from the server
+        OFFLINE,      // listener alive but only serving cache
+        BACKING_OFF,  // listener failed, waiting to resubscribe
+    }
+
+    public interface Supervised {
+        void start();
+
+        void stop();
+    }
+
+    private final String name;
+    private final EventListener<QuerySnapshot> delegate;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable resubscribe = this::resubscribe;
+
+    private Supervised target;
+    private State state = State.STOPPED;
+    private int attempt = 0;
+    private FirebaseFirestoreException.Code lastError;
+
+    // connection bookkeeping (elapsedRealtime)
+    private long connectedSince = 0L;
+    private long disconnectedSince = 0L;
+    private long totalDisconnectedMs = 0L;
+    private long reconnects = 0L;
+    private long failures = 0L;
+
+    public ListenerSupervisor(String name, EventListener<QuerySnapshot> delegate) {
+        this.name = name;
+        this.delegate = delegate;
+    }
+
+    public synchronized void supervise(Supervised target) {
+        this.target = target;
+    }
+
+    public synchronized void start() {
+        if (target == null || state != State.STOPPED) return;
+        enter(State.CONNECTING);
+        target.start();
+    }
+
+    public synchronized void stop() {
+        handler.removeCallbacks(resubscribe);
+        if (target != null) target.stop();
+        enter(State.STOPPED);
+        attempt = 0;
+    }
+
+    @Override
+    public void onEvent(QuerySnapshot snapshots, FirebaseFirestoreException e) {
+        if (e != null) {
+            onError(e);
+        } else if (snapshots != null) {
+            onSnapshot(snapshots.getMetadata().isFromCache());
+        }
+        delegate.onEvent(snapshots, e);
+    }
+
+    private synchronized void onSnapshot(boolean fromCache) {
+        if (state == State.STOPPED || state == State.BACKING_OFF) return;
+        if (fromCache) {
+            if (state == State.CONNECTED) enter(State.OFFLINE);
+            return;
+        }
+        if (state != State.CONNECTED) {
+            if (attempt > 0) AppLog.i(TAG, "✅ {} listener recovered after {} attempts", name, attempt);
+            connectedSince = SystemClock.elapsedRealtime();
+            enter(State.CONNECTED);
+        }
+    }
+
+    private synchronized void onError(FirebaseFirestoreException e) {
+        if (state == State.STOPPED || state == State.BACKING_OFF) return;
+        failures++;
+        lastError = e.getCode();
+
+        // a listener that reported an error never fires again: tear it down before retrying
+        target.stop();
+
+        if (state == State.CONNECTED && SystemClock.elapsedRealtime() - connectedSince >= STABLE_MS) {
+            attempt = 0;
+        }
+        long delay = isTransient(e.getCode()) ? backoffDelay(attempt) : jitter(SLOW_RETRY_MS);
+        attempt++;
+        enter(State.BACKING_OFF);
+        AppLog.w(TAG, "⚠️ {} listener failed ({}), resubscribing in {} ms", name, e.getCode(), delay);
+        handler.postDelayed(resubscribe, delay);
+    }
+
+    private synchronized void resubscribe() {
+        if (state != State.BACKING_OFF) return;
+        reconnects++;
+        enter(State.CONNECTING);
+        target.start();
+    }
+
+    static boolean isTransient(FirebaseFirestoreException.Code code) {
+        if (code == null) return true;
+        switch (code) {
+            case PERMISSION_DENIED:
+            case UNAUTHENTICATED:
+            case FAILED_PRECONDITION:
+            case INVALID_ARGUMENT:
+            case NOT_FOUND:
+            case OUT_OF_RANGE:
+            case UNIMPLEMENTED:
+                return false;
+            default:
+                // UNAVAILABLE, DEADLINE_EXCEEDED, RESOURCE_EXHAUSTED, ABORTED, INTERNAL, UNKNOWN, ...
+                return true;
+        }
+    }
+
+    // full jitter over an exponentially growing, capped ceiling
+    static long backoffDelay(int attempt) {
+        long ceiling = BASE_DELAY_MS << Math.min(attempt, 20);
+        return jitter(Math.min(MAX_DELAY_MS, ceiling));
+    }
+
+    private static long jitter(long ceiling) {
+        return MIN_DELAY_MS + ThreadLocalRandom.current().nextLong(Math.max(1L, ceiling - MIN_DELAY_MS));
+    }
+
+    // disconnected time runs from losing the server (offline or failed) until it is back
+    private void enter(State next) {
+        long now = SystemClock.elapsedRealtime();
+        if (next == State.CONNECTED || next == State.STOPPED) {
+            if (disconnectedSince != 0L) totalDisconnectedMs += now - disconnectedSince;
+            disconnectedSince = 0L;
+        } else if ((next == State.OFFLINE || next == State.BACKING_OFF) && disconnectedSince == 0L) {
+            disconnectedSince = now;
+        }
+        state = next;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getTotalDisconnectedMs() {
+        long current = disconnectedSince != 0L ? SystemClock.elapsedRealtime() - disconnectedSince : 0L;
+        return totalDisconnectedMs + current;
+    }
+
+    public synchronized long getReconnects() {
+        return reconnects;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    public synchronized FirebaseFirestoreException.Code getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + "{state=" + state + " failures=" + failures + " reconnects=" + reconnects
+                + " disconnectedMs=" + getTotalDisconnectedMs() + " lastError=" + lastError + "}";
+    }
+}
@@ -45,9 +45,8 @@ public class LoginActivity extends AppCompatActivity {
 
             // Delay slightly for smoother transition
             new Handler().postDelayed(() -> {
-                // Start foreground alert listener service
-                Intent serviceIntent = new Intent(this, AlertListenerService.class);
-                startForegroundService(serviceIntent);
+                // Start alert delivery in the configured mode
+                AlertDelivery.start(this);
 
                 startMainActivity();
             }, 500); // 0.5 second delay
@@ -84,10 +83,10 @@ public class LoginActivity extends AppCompatActivity {
                             editor.putString("admin_name", adminName);
                             editor.putString("admin_email", email);
                             editor.apply();
+                            MonitoringScope.saveFromAccount(this, doc);
 
-                            // ✅ Start alert listener service
-                            Intent serviceIntent = new Intent(this, AlertListenerService.class);
-                            startForegroundService(serviceIntent);
+                            // ✅ Start alert delivery in the configured mode
+                            AlertDelivery.start(this);
 
                             // ✅ Proceed to main dashboard
                             startMainActivity();
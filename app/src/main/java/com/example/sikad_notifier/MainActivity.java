@@ -1,6 +1,9 @@
 package com.example.sikad_notifier;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import android.Manifest;
 import android.content.Context;
@@ -9,8 +12,8 @@ import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
-import android.util.Log;
 import android.widget.Button;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -20,6 +23,8 @@ public class MainActivity extends AppCompatActivity {
     private static final String TAG = "MainActivity";
     private SharedPreferences prefs;
     private Button logoutButton;
+    private TextView helloText;
+    private AlertLogPager alertPager;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -30,7 +35,7 @@ public class MainActivity extends AppCompatActivity {
 
         // ✅ Check login state first
         if (!prefs.getBoolean("isLoggedIn", false)) {
-            Log.w(TAG, "⚠️ No admin logged in. Redirecting to LoginActivity...");
+            AppLog.w(TAG, "⚠️ No admin logged in. Redirecting to LoginActivity...");
             Intent intent = new Intent(MainActivity.this, LoginActivity.class);
             startActivity(intent);
             finish();
@@ -39,7 +44,7 @@ public class MainActivity extends AppCompatActivity {
 
         String adminName = prefs.getString("admin_name", "Admin");
         Toast.makeText(this, "Welcome, " + adminName, Toast.LENGTH_SHORT).show();
-        Log.d(TAG, "🟢 Admin logged in: " + adminName);
+        AppLog.d(TAG, "🟢 Admin logged in: {}", adminName);
 
         // ✅ Request notification permission for Android 13+
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
@@ -50,50 +55,95 @@ public class MainActivity extends AppCompatActivity {
             }
         }
 
-        // ✅ Quick Firestore connectivity check
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        db.collection("alerts").get()
-                .addOnSuccessListener(q -> Log.d(TAG, "✅ Firestore reachable, total docs: " + q.size()))
-                .addOnFailureListener(e -> Log.e(TAG, "❌ Firestore not reachable", e));
+        helloText = findViewById(R.id.helloText);
 
-        // ✅ Start the alert listener service with a current timestamp
-        startAlertListenerService(System.currentTimeMillis());
+        // ✅ Recent alerts dashboard
+        setupAlertList();
 
         // ✅ Setup Logout Button
         logoutButton = findViewById(R.id.logoutButton);
         logoutButton.setOnClickListener(v -> logoutAdmin());
+
+        // ✅ Alert latency and throughput metrics
+        Button diagnosticsButton = findViewById(R.id.diagnosticsButton);
+        diagnosticsButton.setOnClickListener(v -> startActivity(new Intent(this, DiagnosticsActivity.class)));
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+
+        // ✅ Start receiving alerts (streaming by default, push when switched on remotely); being in the
+        // foreground also resets the foreground-service allowance, so streaming may resume here
+        ExecutionModeController.onAppForeground(this);
+        startAlertDelivery();
+        AlertDelivery.refreshRemoteMode(this);
+        MonitoringScope.refresh(this);
+        showDeliveryStatus();
+
+        if (alertPager != null) alertPager.start();
+    }
+
+    @Override
+    protected void onStop() {
+        if (alertPager != null) alertPager.stop();
+        super.onStop();
     }
 
-    private void startAlertListenerService(long startTime) {
-        // Only start service if admin session is active
+    private void setupAlertList() {
+        RecyclerView alertList = findViewById(R.id.alertList);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        AlertLogAdapter adapter = new AlertLogAdapter();
+        alertList.setLayoutManager(layoutManager);
+        alertList.setHasFixedSize(true);
+        alertList.setAdapter(adapter);
+
+        alertPager = new AlertLogPager(FirebaseFirestore.getInstance(), adapter::submitList);
+        alertList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                alertPager.onVisibleRange(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition(), layoutManager.getItemCount());
+            }
+        });
+    }
+
+    private void startAlertDelivery() {
+        // Only start delivery if admin session is active
         if (!prefs.getBoolean("isLoggedIn", false)) {
-            Log.w(TAG, "⚠️ Admin not logged in. AlertListenerService will not start.");
+            AppLog.w(TAG, "⚠️ Admin not logged in. Alert delivery will not start.");
             return;
         }
 
-        Intent serviceIntent = new Intent(this, AlertListenerService.class);
-        serviceIntent.putExtra("SERVICE_START_TIME", startTime); // ✅ Pass start timestamp
+        AppLog.d(TAG, "▶️ Starting alert delivery ({})...", AlertDelivery.getMode(this));
+        AlertDelivery.start(this);
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            Log.d(TAG, "▶️ Starting foreground service (persistent)...");
-            startForegroundService(serviceIntent);
-        } else {
-            Log.d(TAG, "▶️ Starting background service...");
-            startService(serviceIntent);
-        }
+    private void showDeliveryStatus() {
+        ExecutionModeController.Mode mode = ExecutionModeController.getActiveMode(this);
+        long latencySec = mode.expectedLatencyMs / 1000L;
+        String latency = latencySec < 60 ? "~" + latencySec + "s" : "~" + (latencySec / 60) + " min";
+        helloText.setText("Notifications turned on ✅\n" + mode + " · alerts within " + latency);
     }
 
     private void logoutAdmin() {
-        Log.d(TAG, "🚪 Logging out admin...");
+        AppLog.d(TAG, "🚪 Logging out admin...");
 
         // Clear stored session
         SharedPreferences.Editor editor = prefs.edit();
         editor.clear();
         editor.apply();
 
-        // Stop foreground service
-        Intent serviceIntent = new Intent(this, AlertListenerService.class);
-        stopService(serviceIntent);
+        // Stop push and streaming delivery; flushes the engine's watermark and logs
+        AlertDelivery.stop(this);
+
+        // Next login starts fresh instead of resuming from this session's watermark; cleared after
+        // the engine's background shutdown so its last checkpoint cannot write them back
+        Context app = getApplicationContext();
+        AlertEngine.afterRelease(() -> {
+            AlertWatermark.clear(app);
+            ProcessedAlertFilter.clear(app);
+        });
 
         Toast.makeText(this, "Logged out successfully", Toast.LENGTH_SHORT).show();
 
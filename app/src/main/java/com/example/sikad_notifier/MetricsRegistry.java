@@ -0,0 +1,243 @@
+package com.example.sikad_notifier;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide counters, gauges and latency histograms for the alert path, shown by
+ * {@link DiagnosticsActivity} and exportable to a text file.
+ *
+ * Everything is lock-free and fixed-size once registered, so recording on the pipeline threads
+ * costs a few atomic adds. Alert latencies are all measured from the alert's own timestamp, so the
+ * hops can be read off side by side: {@link #ALERT_RECEIPT} (snapshot delivered to this device),
+ * {@link #ALERT_POSTED} (notification handed to the system) and {@link #LOG_ACK} (notifier_logs
+ * write acknowledged by Firestore).
+ */
+public final class MetricsRegistry {
+
+    private static final String TAG = "MetricsRegistry";
+
+    // latency histograms, ms since the alert was raised
+    public static final String ALERT_RECEIPT = "latency.receipt_ms";
+    public static final String ALERT_POSTED = "latency.posted_ms";
+    public static final String LOG_ACK = "latency.log_ack_ms";
+
+    // counters
+    public static final String ALERTS_RECEIVED = "alerts.received";
+    public static final String ALERTS_POSTED = "alerts.posted";
+    public static final String LOGS_ACKED = "logs.acked";
+
+    private static final String EXPORT_DIR = "metrics";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final long startedAt = System.currentTimeMillis();
+
+    public static MetricsRegistry get() {
+        return INSTANCE;
+    }
+
+    private MetricsRegistry() {
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    // a later registration under the same name replaces the earlier one (e.g. a new engine)
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // owners must remove their gauges when they go away: the supplier keeps them reachable
+    public void removeGauge(String name) {
+        gauges.remove(name);
+    }
+
+    // only if it is still this supplier, not a later owner's replacement
+    public void removeGauge(String name, LongSupplier value) {
+        gauges.remove(name, value);
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Monotonic count, plus a rate over the last minute kept in {@link #RATE_SLOTS} five-second slots.
+     */
+    public static final class Counter {
+
+        static final int RATE_SLOTS = 12;
+        static final long SLOT_MS = 5_000L;
+
+        private final AtomicLong total = new AtomicLong();
+        // slot i holds the count for the 5 s period stamped in slotPeriod[i]
+        private final AtomicLongArray slotCount = new AtomicLongArray(RATE_SLOTS);
+        private final AtomicLongArray slotPeriod = new AtomicLongArray(RATE_SLOTS);
+
+        public void increment() {
+            add(1L, System.currentTimeMillis());
+        }
+
+        public void add(long n) {
+            add(n, System.currentTimeMillis());
+        }
+
+        void add(long n, long now) {
+            total.addAndGet(n);
+            long period = now / SLOT_MS;
+            int slot = (int) (period % RATE_SLOTS);
+            long stamped = slotPeriod.get(slot);
+            // first add in a new period claims the slot; losing the race just means the winner reset it
+            if (stamped != period && slotPeriod.compareAndSet(slot, stamped, period)) {
+                slotCount.set(slot, 0L);
+            }
+            slotCount.addAndGet(slot, n);
+        }
+
+        public long get() {
+            return total.get();
+        }
+
+        public long perMinute() {
+            return perMinute(System.currentTimeMillis());
+        }
+
+        long perMinute(long now) {
+            long period = now / SLOT_MS;
+            long sum = 0L;
+            for (int i = 0; i < RATE_SLOTS; i++) {
+                if (period - slotPeriod.get(i) < RATE_SLOTS) sum += slotCount.get(i);
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Log-linear latency histogram in fixed memory: exact below 8 ms, then 8 buckets per power of
+     * two (within 12.5%) up to about 24 days. Percentiles report the upper bound of their bucket.
+     */
+    public static final class Histogram {
+
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int MAX_EXPONENT = 30;
+        static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+        static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        // negative values (clock skew between the sender and this device) count as 0
+        public void record(long value) {
+            long v = Math.max(0L, Math.min(value, MAX_VALUE));
+            buckets.incrementAndGet(bucketOf(v));
+            count.incrementAndGet();
+            sum.addAndGet(v);
+            max.accumulateAndGet(v, Math::max);
+        }
+
+        static int bucketOf(long v) {
+            if (v < SUB_BUCKETS) return (int) v;
+            int exponent = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            long width = 1L << (exponent - SUB_BITS);
+            long low = (SUB_BUCKETS + bucket % SUB_BUCKETS) * width;
+            return low + width - 1;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public long getMean() {
+            long n = count.get();
+            return n == 0 ? 0L : sum.get() / n;
+        }
+
+        // p in (0, 1]; 0 when nothing was recorded
+        public long percentile(double p) {
+            long n = count.get();
+            if (n == 0) return 0L;
+            long rank = Math.max(1L, (long) Math.ceil(p * n));
+            long seen = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return Math.min(upperBound(i), max.get());
+            }
+            return max.get();
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount() + " p50=" + percentile(0.50) + " p95=" + percentile(0.95)
+                    + " p99=" + percentile(0.99) + " max=" + getMax() + " mean=" + getMean();
+        }
+    }
+
+    // one line per metric, sorted by name
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("version ").append(BuildConfig.VERSION_NAME).append(" (").append(BuildConfig.VERSION_CODE).append(")\n");
+        sb.append("uptime_s ").append((System.currentTimeMillis() - startedAt) / 1000L).append('\n');
+
+        sb.append("\n# latency (ms since the alert was raised)\n");
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(histograms).entrySet()) {
+            sb.append(e.getKey()).append(' ').append(e.getValue()).append('\n');
+        }
+        sb.append("\n# counters\n");
+        for (Map.Entry<String, Counter> e : new TreeMap<>(counters).entrySet()) {
+            sb.append(e.getKey()).append(' ').append(e.getValue().get())
+                    .append(" (").append(e.getValue().perMinute()).append("/min)\n");
+        }
+        sb.append("\n# gauges\n");
+        for (Map.Entry<String, LongSupplier> e : new TreeMap<>(gauges).entrySet()) {
+            sb.append(e.getKey()).append(' ').append(e.getValue().getAsLong()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // writes the report to app-specific storage (no permission needed) and returns the file
+    public File export(Context context) throws IOException {
+        File base = context.getExternalFilesDir(null);
+        File dir = new File(base != null ? base : context.getFilesDir(), EXPORT_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File file = new File(dir, "metrics-" + BuildConfig.VERSION_NAME + "-" + stamp + ".txt");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(report().getBytes(StandardCharsets.UTF_8));
+        }
+        AppLog.i(TAG, "📤 Exported metrics to {}", file);
+        return file;
+    }
+}
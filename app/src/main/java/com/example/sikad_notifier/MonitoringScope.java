@@ -0,0 +1,189 @@
+package com.example.sikad_notifier;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Which alerts this admin device monitors: the whole fleet, a set of bikes, or a set of stations.
+ *
+ * A scoped configuration is split into {@link Shard}s of at most {@link #MAX_IN_VALUES} values,
+ * Firestore's limit for one {@code whereIn} filter, each becoming its own server-side query, so
+ * downlink traffic and decode work follow the admin's scope rather than the fleet size. Values
+ * are sorted before splitting, so the same configuration always yields the same shards (and the
+ * same listener keys).
+ *
+ * The scope is configured per admin on their {@code admin_accounts} document
+ * ({@code scope: "ALL" | "BIKES" | "STATIONS"}, {@code scopeIds: [...]}), copied at login and
+ * re-read whenever the app comes to the foreground.
+ *
+ * A {@code whereIn} on {@code bikeId}/{@code stationId} combined with the timestamp range and
+ * ordering needs a composite index on alerts: (bikeId ASC, timestamp ASC) and
+ * (stationId ASC, timestamp ASC).
+ */
+public final class MonitoringScope {
+
+    public enum Kind { ALL, BIKES, STATIONS }
+
+    // Firestore's maximum number of values in one whereIn filter
+    static final int MAX_IN_VALUES = 30;
+
+    static final String FIELD_BIKE = "bikeId";
+    static final String FIELD_STATION = "stationId";
+
+    private static final String TAG = "MonitoringScope";
+
+    private static final String PREFS = "MonitoringScope";
+    private static final String KEY_KIND = "kind";
+    private static final String KEY_VALUES = "values";
+
+    // fields on the admin_accounts document
+    static final String ACCOUNT_SCOPE = "scope";
+    static final String ACCOUNT_SCOPE_IDS = "scopeIds";
+
+    /**
+     * One server-side query's share of the scope; {@code field} is null for the whole fleet.
+     */
+    public static final class Shard {
+        public final String key;
+        public final String field;
+        public final List<String> values;
+
+        Shard(String key, String field, List<String> values) {
+            this.key = key;
+            this.field = field;
+            this.values = values;
+        }
+
+        public Query apply(Query query) {
+            return field == null ? query : query.whereIn(field, values);
+        }
+    }
+
+    private final Kind kind;
+    private final List<String> values;
+
+    private MonitoringScope(Kind kind, Collection<String> values) {
+        this.kind = values.isEmpty() ? Kind.ALL : kind;
+        this.values = this.kind == Kind.ALL
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(values)));
+    }
+
+    public static MonitoringScope load(Context context) {
+        SharedPreferences prefs = prefs(context);
+        Kind kind;
+        try {
+            kind = Kind.valueOf(prefs.getString(KEY_KIND, Kind.ALL.name()));
+        } catch (IllegalArgumentException e) {
+            kind = Kind.ALL;
+        }
+        return new MonitoringScope(kind, prefs.getStringSet(KEY_VALUES, Collections.emptySet()));
+    }
+
+    // takes effect on the next service start; an empty value set means the whole fleet
+    public static void save(Context context, Kind kind, Collection<String> values) {
+        prefs(context).edit()
+                .putString(KEY_KIND, kind.name())
+                .putStringSet(KEY_VALUES, new HashSet<>(values))
+                .apply();
+    }
+
+    // copy the admin's configured scope; returns true if it differs from the stored one
+    public static boolean saveFromAccount(Context context, DocumentSnapshot account) {
+        Kind kind;
+        try {
+            String value = account.getString(ACCOUNT_SCOPE);
+            kind = value == null ? Kind.ALL : Kind.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            AppLog.w(TAG, "⚠️ Unknown monitoring scope {}, monitoring all alerts",
+                    account.getString(ACCOUNT_SCOPE));
+            kind = Kind.ALL;
+        }
+        List<String> values = new ArrayList<>();
+        Object ids = account.get(ACCOUNT_SCOPE_IDS);
+        if (ids instanceof Collection) {
+            for (Object id : (Collection<?>) ids) {
+                if (id != null) values.add(id.toString());
+            }
+        }
+        MonitoringScope configured = new MonitoringScope(kind, values);
+        if (configured.equals(load(context))) return false;
+        save(context, configured.kind, configured.values);
+        AppLog.i(TAG, "🎯 Monitoring scope set to {}", configured);
+        return true;
+    }
+
+    // re-read the logged-in admin's scope and restart delivery if it changed (app in the foreground)
+    public static void refresh(Context context) {
+        Context app = context.getApplicationContext();
+        String email = app.getSharedPreferences("AdminSession", Context.MODE_PRIVATE)
+                .getString("admin_email", null);
+        if (email == null) return;
+        FirebaseFirestore.getInstance().collection("admin_accounts")
+                .whereEqualTo("email", email).limit(1).get()
+                .addOnSuccessListener(snapshot -> {
+                    if (snapshot.isEmpty()) return;
+                    if (saveFromAccount(app, snapshot.getDocuments().get(0))) AlertDelivery.start(app);
+                })
+                .addOnFailureListener(e -> AppLog.w(TAG, "⚠️ Could not read monitoring scope, keeping {}",
+                        load(app), e));
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public List<Shard> shards() {
+        List<Shard> shards = new ArrayList<>();
+        if (kind == Kind.ALL) {
+            shards.add(new Shard("", null, Collections.emptyList()));
+            return shards;
+        }
+        String field = kind == Kind.BIKES ? FIELD_BIKE : FIELD_STATION;
+        for (int from = 0; from < values.size(); from += MAX_IN_VALUES) {
+            List<String> chunk = values.subList(from, Math.min(values.size(), from + MAX_IN_VALUES));
+            shards.add(new Shard("[" + field + ":" + from / MAX_IN_VALUES + "]", field, chunk));
+        }
+        return shards;
+    }
+
+    // for sources that cannot be filtered server-side (push); stations are not in the payload
+    public boolean includesBike(String bikeId) {
+        return kind != Kind.BIKES || values.contains(bikeId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MonitoringScope)) return false;
+        MonitoringScope other = (MonitoringScope) o;
+        return kind == other.kind && values.equals(other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, values);
+    }
+
+    @Override
+    public String toString() {
+        return kind == Kind.ALL ? "all alerts" : values.size() + " " + kind.name().toLowerCase(Locale.ROOT) + " in " + shards().size() + " shards";
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
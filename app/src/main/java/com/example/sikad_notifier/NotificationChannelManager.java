@@ -0,0 +1,102 @@
+package com.example.sikad_notifier;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Creates the app's notification channels only when their configuration changes.
+ *
+ * Sound and vibration are immutable once a channel exists, and re-creating a deleted channel id
+ * restores its old settings, so a config change means a new channel id (the version is part of
+ * the id) and deleting the legacy ones. The applied version is remembered in SharedPreferences,
+ * so a normal service start does no channel binder calls at all.
+ */
+public class NotificationChannelManager {
+
+    private static final String PREFS_NAME = "NotificationChannels";
+    private static final String KEY_VERSION = "config_version";
+
+    // bump whenever a channel's sound, vibration or importance changes
+    public static final int CONFIG_VERSION = 1;
+
+    public static final String CHANNEL_ID_MONITOR = "monitor_channel";
+    // one alert channel per Severity, so users can tune each level in system settings
+    public static final String CHANNEL_ID_CRITICAL = "alert_critical_v" + CONFIG_VERSION;
+    public static final String CHANNEL_ID_HIGH = "alert_high_v" + CONFIG_VERSION;
+    public static final String CHANNEL_ID_ALERT = "alert_channel_v" + CONFIG_VERSION;
+    public static final String CHANNEL_ID_LOW = "alert_low_v" + CONFIG_VERSION;
+
+    // ids used by earlier configs: the single alert channel from before per-severity channels;
+    // add the previous version's ids here when CONFIG_VERSION is bumped
+    private static final String[] LEGACY_CHANNEL_IDS = {"alert_channel"};
+
+    public static void ensureChannels(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getInt(KEY_VERSION, 0) == CONFIG_VERSION) return;
+
+        NotificationManager manager = context.getSystemService(NotificationManager.class);
+
+        // Monitor channel (silent)
+        NotificationChannel monitorChannel = new NotificationChannel(
+                CHANNEL_ID_MONITOR,
+                "Monitor Notifications",
+                NotificationManager.IMPORTANCE_LOW
+        );
+        monitorChannel.setDescription("Shows that alert monitoring is active (no sound)");
+        manager.createNotificationChannel(monitorChannel);
+
+        // Alert channels: AlertSoundPlayer plays the sound for every level except critical, whose
+        // channel keeps its own so it is heard even before the player has decoded anything
+        NotificationChannel criticalChannel = new NotificationChannel(
+                CHANNEL_ID_CRITICAL,
+                "Critical Alerts",
+                NotificationManager.IMPORTANCE_HIGH
+        );
+        criticalChannel.setDescription("Theft and tampering; every alert is shown on its own");
+        criticalChannel.enableVibration(true);
+        criticalChannel.setVibrationPattern(new long[]{0, 600, 150, 600, 150, 600});
+        criticalChannel.setSound(AlertSoundPlayer.soundUri(context), AlertSoundPlayer.ATTRIBUTES);
+        manager.createNotificationChannel(criticalChannel);
+
+        NotificationChannel highChannel = new NotificationChannel(
+                CHANNEL_ID_HIGH,
+                "High Priority Alerts",
+                NotificationManager.IMPORTANCE_HIGH
+        );
+        highChannel.setDescription("Crashes and bikes leaving their zone");
+        highChannel.enableVibration(true);
+        highChannel.setVibrationPattern(new long[]{0, 400, 200, 400});
+        highChannel.setSound(null, null);
+        manager.createNotificationChannel(highChannel);
+
+        NotificationChannel alertChannel = new NotificationChannel(
+                CHANNEL_ID_ALERT,
+                "Alert Notifications",
+                NotificationManager.IMPORTANCE_HIGH
+        );
+        alertChannel.setDescription("Notifies when bikes trigger alerts");
+        alertChannel.enableVibration(true);
+        alertChannel.setVibrationPattern(new long[]{0, 400, 200, 400});
+        alertChannel.setSound(null, null);
+        manager.createNotificationChannel(alertChannel);
+
+        // Low channel: shade only, no heads-up or vibration
+        NotificationChannel lowChannel = new NotificationChannel(
+                CHANNEL_ID_LOW,
+                "Low Priority Alerts",
+                NotificationManager.IMPORTANCE_DEFAULT
+        );
+        lowChannel.setDescription("Battery and connectivity notices");
+        lowChannel.enableVibration(false);
+        lowChannel.setSound(null, null);
+        manager.createNotificationChannel(lowChannel);
+
+        for (String legacyId : LEGACY_CHANNEL_IDS) {
+            manager.deleteNotificationChannel(legacyId);
+        }
+
+        prefs.edit().putInt(KEY_VERSION, CONFIG_VERSION).apply();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.sikad_notifier;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.os.SystemClock;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces NotificationManager.notify calls under the platform's per-app enqueue rate limit.
+ *
+ * The system silently drops notification updates that arrive faster than a few per second
+ * (AOSP's default is 5/s), so updates are queued per notification id and posted from a token
+ * bucket instead. A newer update for an id that is still queued replaces the older one (merged);
+ * if either wanted to alert, the merged update alerts. When too many distinct ids are queued, the
+ * oldest one that is not pinned is dropped; pinned ids (summary, storm, backlog) carry the
+ * aggregate state and must not lose their last update. Urgent updates (critical alerts) have their
+ * own queue that is always posted first and may overdraw the bucket by {@link #URGENT_OVERDRAFT}
+ * post, still under the platform limit, so they are never held behind a storm of routine updates.
+ * Notifications are built on the dispatcher thread at post time, so builder templates used by
+ * {@link Renderer}s are only ever touched from that thread.
+ */
+public class NotificationDispatcher {
+
+    private static final String TAG = "NotificationDispatcher";
+
+    // stay safely under the platform limit
+    private static final int MAX_POSTS_PER_SECOND = 4;
+    private static final int BURST = 4;
+    private static final int MAX_PENDING_IDS = 32;
+    // we pace at 4/s against a platform limit of 5/s, which leaves room for one extra urgent post
+    private static final int URGENT_OVERDRAFT = 1;
+
+    public interface Renderer {
+        Notification render(boolean alerting);
+    }
+
+    private static final class Pending {
+        final Renderer renderer;
+        final boolean alerting;
+
+        Pending(Renderer renderer, boolean alerting) {
+            this.renderer = renderer;
+            this.alerting = alerting;
+        }
+    }
+
+    private final NotificationManager manager;
+    private final Set<Integer> pinnedIds = new HashSet<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    // dispatcher thread only
+    private final LinkedHashMap<Integer, Pending> urgent = new LinkedHashMap<>();
+    private final LinkedHashMap<Integer, Pending> pending = new LinkedHashMap<>();
+    private double tokens = BURST;
+    private long lastRefill = SystemClock.elapsedRealtime();
+    private boolean drainScheduled = false;
+
+    private final AtomicLong posted = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // pinnedIds are never dropped to make room, only merged
+    public NotificationDispatcher(NotificationManager manager, int... pinnedIds) {
+        this.manager = manager;
+        for (int id : pinnedIds) this.pinnedIds.add(id);
+    }
+
+    public void post(int id, boolean alerting, Renderer renderer) {
+        executor.execute(() -> {
+            Pending previous = pending.get(id);
+            if (previous != null) {
+                merged.incrementAndGet();
+                // keep the id's place in line, but with the newest content
+                pending.put(id, new Pending(renderer, alerting || previous.alerting));
+            } else {
+                if (pending.size() >= MAX_PENDING_IDS) dropOldest();
+                pending.put(id, new Pending(renderer, alerting));
+            }
+            drain();
+        });
+    }
+
+    // ahead of every routine update; never merged away or dropped
+    public void postUrgent(int id, boolean alerting, Renderer renderer) {
+        executor.execute(() -> {
+            Pending previous = urgent.get(id);
+            urgent.put(id, new Pending(renderer, alerting || (previous != null && previous.alerting)));
+            drain();
+        });
+    }
+
+    public void cancel(int id) {
+        executor.execute(() -> {
+            urgent.remove(id);
+            pending.remove(id);
+            manager.cancel(id);
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void dropOldest() {
+        Iterator<Integer> it = pending.keySet().iterator();
+        while (it.hasNext()) {
+            if (pinnedIds.contains(it.next())) continue;
+            it.remove();
+            dropped.incrementAndGet();
+            return;
+        }
+    }
+
+    private void drain() {
+        refill();
+        drainQueue(urgent, 1 - URGENT_OVERDRAFT);
+        drainQueue(pending, 1);
+        if ((!pending.isEmpty() || !urgent.isEmpty()) && !drainScheduled) {
+            drainScheduled = true;
+            long waitMs = (long) Math.ceil((1 - tokens) * 1000.0 / MAX_POSTS_PER_SECOND);
+            executor.schedule(() -> {
+                drainScheduled = false;
+                drain();
+            }, Math.max(waitMs, 1), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // post from queue while at least minTokens are left
+    private void drainQueue(LinkedHashMap<Integer, Pending> queue, int minTokens) {
+        Iterator<Map.Entry<Integer, Pending>> it = queue.entrySet().iterator();
+        while (tokens >= minTokens && it.hasNext()) {
+            Map.Entry<Integer, Pending> entry = it.next();
+            it.remove();
+            tokens -= 1;
+            try {
+                manager.notify(entry.getKey(), entry.getValue().renderer.render(entry.getValue().alerting));
+                posted.incrementAndGet();
+            } catch (RuntimeException e) {
+                AppLog.e(TAG, "❌ Failed to post notification {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    private void refill() {
+        long now = SystemClock.elapsedRealtime();
+        tokens = Math.min(BURST, tokens + (now - lastRefill) * MAX_POSTS_PER_SECOND / 1000.0);
+        lastRefill = now;
+    }
+
+    public long getPosted() {
+        return posted.get();
+    }
+
+    public long getMerged() {
+        return merged.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public String toString() {
+        return "posted=" + getPosted() + " merged=" + getMerged() + " dropped=" + getDropped();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.sikad_notifier;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the on-device notifier_logs journal into Firestore in full-size batches.
+ *
+ * Failed live writes enqueue an urgent drain that only needs connectivity; leftover backlog is
+ * drained in unmetered, charging windows. Transient errors retry with backoff; a batch Firestore
+ * rejects for good is dead-lettered in the journal (after isolating the bad records when the
+ * rejection is about the data), so one bad record cannot hold the journal back forever.
+ */
+public class NotifierLogDrainWorker extends Worker {
+
+    private static final String TAG = "NotifierLogDrainWorker";
+
+    private static final String WORK_URGENT = "notifier_log_drain_urgent";
+    private static final String WORK_BACKLOG = "notifier_log_drain_backlog";
+    private static final String WORK_PERIODIC = "notifier_log_drain_periodic";
+
+    private static final long COMMIT_TIMEOUT_SECONDS = 60L;
+
+    public NotifierLogDrainWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        NotifierLogJournal journal = NotifierLogJournal.get(getApplicationContext());
+        CollectionReference logs = FirebaseFirestore.getInstance().collection("notifier_logs");
+        int drained = 0;
+
+        try {
+            List<NotifierLogJournal.Entry> entries;
+            while (!isStopped()
+                    && !(entries = journal.pending(NotifierLogWriter.MAX_BATCH_SIZE)).isEmpty()) {
+                FirebaseFirestoreException.Code rejected = commit(logs, entries);
+                if (rejected == null) {
+                    journal.acknowledge(entries.get(0).seq, entries.get(entries.size() - 1).seq);
+                } else if (isRecordError(rejected) && entries.size() > 1) {
+                    // find the records at fault one by one; the rest still go through
+                    List<NotifierLogJournal.Entry> bad = new ArrayList<>();
+                    for (NotifierLogJournal.Entry entry : entries) {
+                        List<NotifierLogJournal.Entry> single = Collections.singletonList(entry);
+                        if (commit(logs, single) == null) {
+                            journal.acknowledge(entry.seq, entry.seq);
+                        } else {
+                            bad.add(entry);
+                        }
+                    }
+                    journal.deadLetter(bad);
+                } else {
+                    AppLog.w(TAG, "⚠️ Firestore rejected {} logs ({}) after {} drained", entries.size(), rejected, drained);
+                    journal.deadLetter(entries);
+                }
+                drained += entries.size();
+            }
+        } catch (Exception e) {
+            AppLog.w(TAG, "⚠️ Drain interrupted after {} logs, will retry", drained, e);
+            return Result.retry();
+        }
+
+        AppLog.d(TAG, "✅ Drained {} journaled logs", drained);
+        return Result.success();
+    }
+
+    // commit one batch, create-only like the live writer; null on success, the error code if Firestore rejected it for good.
+    // Transient failures (and timeouts) throw, so the whole run is retried later.
+    private static FirebaseFirestoreException.Code commit(CollectionReference logs,
+                                                          List<NotifierLogJournal.Entry> entries) throws Exception {
+        try {
+            Tasks.await(NotifierLogWriter.commitCreateOnly(FirebaseFirestore.getInstance(), logs, entries),
+                    COMMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FirebaseFirestoreException) {
+                FirebaseFirestoreException.Code code = ((FirebaseFirestoreException) e.getCause()).getCode();
+                if (!ListenerSupervisor.isTransient(code)) return code;
+            }
+            throw e;
+        }
+    }
+
+    // rejections caused by a record's content rather than by who is writing
+    private static boolean isRecordError(FirebaseFirestoreException.Code code) {
+        return code == FirebaseFirestoreException.Code.INVALID_ARGUMENT
+                || code == FirebaseFirestoreException.Code.FAILED_PRECONDITION
+                || code == FirebaseFirestoreException.Code.OUT_OF_RANGE;
+    }
+
+    // a live write failed: replay as soon as there is any network
+    public static void enqueueUrgent(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(NotifierLogDrainWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_URGENT, ExistingWorkPolicy.KEEP, request);
+    }
+
+    // backlog left over from an earlier process: wait for an unmetered, charging window
+    public static void enqueueBacklog(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(NotifierLogDrainWorker.class)
+                .setConstraints(backlogConstraints())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 5, TimeUnit.MINUTES)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_BACKLOG, ExistingWorkPolicy.KEEP, request);
+    }
+
+    // safety net for anything the one-off drains missed
+    public static void schedulePeriodic(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                NotifierLogDrainWorker.class, 12, TimeUnit.HOURS)
+                .setConstraints(backlogConstraints())
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_PERIODIC, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    private static Constraints backlogConstraints() {
+        return new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresCharging(true)
+                .build();
+    }
+}
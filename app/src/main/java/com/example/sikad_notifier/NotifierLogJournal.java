@@ -0,0 +1,333 @@
+package com.example.sikad_notifier;
+
+import android.content.Context;
+import android.util.AtomicFile;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Append-only on-device journal of notifier_logs records (write-ahead log).
+ *
+ * Every record is appended and synced to disk before it is sent, together with a sequence number
+ * and the Firestore document id it will be written to (derived from the alert, so every device
+ * and every replay targets the same document). Successful commits acknowledge sequence
+ * ranges; the contiguous acknowledged prefix is persisted separately and the file is compacted
+ * once it is fully drained. Replaying unacknowledged entries after a crash writes the same
+ * documents with the same ids, so replay is exact even if a batch had in fact reached the server.
+ *
+ * Records Firestore rejects for good are moved to a capped dead-letter file so the acknowledged
+ * prefix keeps advancing, and the journal itself is capped at {@link #MAX_JOURNAL_BYTES}: past
+ * that the oldest unsent records are dropped rather than filling the disk.
+ *
+ * One instance per process, see {@link #get(Context)}.
+ */
+public class NotifierLogJournal {
+
+    private static final String TAG = "NotifierLogJournal";
+
+    private static final String JOURNAL_FILE = "notifier_logs.journal";
+    private static final String ACK_FILE = "notifier_logs.journal.ack";
+    private static final String DEAD_LETTER_FILE = "notifier_logs.deadletter";
+
+    // rewrite the journal without acknowledged entries once it grows past this
+    private static final long COMPACT_THRESHOLD_BYTES = 256 * 1024L;
+    // hard limit; a full journal is trimmed to MAX_JOURNAL_BYTES / 2, oldest records first
+    static final long MAX_JOURNAL_BYTES = 4 * 1024 * 1024L;
+    // rejected records are kept for inspection up to this size, then dropped
+    private static final long MAX_DEAD_LETTER_BYTES = 256 * 1024L;
+
+    private static NotifierLogJournal instance;
+
+    public static synchronized NotifierLogJournal get(Context context) {
+        if (instance == null) {
+            instance = new NotifierLogJournal(context.getApplicationContext().getFilesDir());
+        }
+        return instance;
+    }
+
+    public static class Entry {
+        public final long seq;
+        public final String docId;
+        public final Map<String, Object> data;
+
+        Entry(long seq, String docId, Map<String, Object> data) {
+            this.seq = seq;
+            this.docId = docId;
+            this.data = data;
+        }
+    }
+
+    private final File journalFile;
+    private final AtomicFile ackFile;
+    private final File deadLetterFile;
+
+    private long lastSeq;
+    private long ackedSeq;
+    // acknowledged ranges (first -> last) that are not yet contiguous with ackedSeq
+    private final TreeMap<Long, Long> ackedAhead = new TreeMap<>();
+
+    private NotifierLogJournal(File dir) {
+        journalFile = new File(dir, JOURNAL_FILE);
+        ackFile = new AtomicFile(new File(dir, ACK_FILE));
+        deadLetterFile = new File(dir, DEAD_LETTER_FILE);
+        ackedSeq = readAck();
+        lastSeq = Math.max(ackedSeq, recover());
+    }
+
+    // append a record for docId and sync it to disk; returns the entry to send
+    public synchronized Entry append(String docId, Map<String, Object> data) throws IOException {
+        Entry entry = new Entry(lastSeq + 1, docId, data);
+        JSONObject line = new JSONObject();
+        try {
+            line.put("seq", entry.seq);
+            line.put("id", entry.docId);
+            line.put("data", new JSONObject(data));
+        } catch (JSONException e) {
+            throw new IOException("Unserializable log record", e);
+        }
+
+        if (journalFile.length() >= MAX_JOURNAL_BYTES) compact(MAX_JOURNAL_BYTES / 2);
+
+        try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write((line.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        lastSeq = entry.seq;
+        return entry;
+    }
+
+    // records Firestore rejected for good (bad data, no permission): set aside and acknowledge,
+    // so they stop holding back everything journaled after them
+    public synchronized void deadLetter(List<Entry> entries) {
+        if (entries.isEmpty()) return;
+        if (deadLetterFile.length() < MAX_DEAD_LETTER_BYTES) {
+            try (FileOutputStream out = new FileOutputStream(deadLetterFile, true)) {
+                for (Entry entry : entries) {
+                    JSONObject line = new JSONObject();
+                    line.put("seq", entry.seq);
+                    line.put("id", entry.docId);
+                    line.put("data", new JSONObject(entry.data));
+                    out.write((line.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (IOException | JSONException e) {
+                AppLog.e(TAG, "❌ Failed to write dead letters", e);
+            }
+        }
+        AppLog.w(TAG, "⚠️ Dead-lettered {} rejected log records", entries.size());
+        for (Entry entry : entries) acknowledge(entry.seq, entry.seq);
+    }
+
+    // oldest unacknowledged entries, in sequence order
+    public synchronized List<Entry> pending(int max) {
+        List<Entry> result = new ArrayList<>();
+        if (!journalFile.exists()) return result;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            String line;
+            while (result.size() < max && (line = reader.readLine()) != null) {
+                Entry entry = parse(line);
+                if (entry != null && entry.seq > ackedSeq) result.add(entry);
+            }
+        } catch (IOException e) {
+            AppLog.e(TAG, "❌ Failed to read journal", e);
+        }
+        return result;
+    }
+
+    public synchronized boolean hasPending() {
+        return lastSeq > ackedSeq;
+    }
+
+    public synchronized long pendingCount() {
+        return lastSeq - ackedSeq;
+    }
+
+    // mark entries firstSeq..lastSeq as committed to Firestore
+    public synchronized void acknowledge(long firstSeq, long lastSeq) {
+        if (lastSeq <= ackedSeq) return;
+        Long existing = ackedAhead.get(firstSeq);
+        if (existing == null || existing < lastSeq) ackedAhead.put(firstSeq, lastSeq);
+
+        if (!advanceAck()) return;
+
+        writeAck();
+        if (ackedSeq >= this.lastSeq) {
+            // fully drained: start a fresh file
+            if (journalFile.exists() && !journalFile.delete()) {
+                AppLog.w(TAG, "⚠️ Could not truncate drained journal");
+            }
+        } else if (journalFile.length() > COMPACT_THRESHOLD_BYTES) {
+            compact(Long.MAX_VALUE);
+        }
+    }
+
+    // fold acknowledged ranges that now touch the prefix into ackedSeq; true if it moved
+    private boolean advanceAck() {
+        long before = ackedSeq;
+        Iterator<Map.Entry<Long, Long>> it = ackedAhead.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Long> range = it.next();
+            if (range.getKey() > ackedSeq + 1) break;
+            ackedSeq = Math.max(ackedSeq, range.getValue());
+            it.remove();
+        }
+        return ackedSeq != before;
+    }
+
+    // rewrite without acknowledged entries; if the rest is still over maxBytes, the oldest
+    // unacknowledged entries are dropped too and counted as acknowledged
+    private void compact(long maxBytes) {
+        int kept = 0;
+        long dropped = 0L;
+        // bytes of unacknowledged entries, to know how many of the oldest to skip
+        long unacked = 0L;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry = parse(line);
+                if (entry != null && entry.seq > ackedSeq) unacked += line.length() + 1;
+            }
+        } catch (IOException e) {
+            AppLog.e(TAG, "❌ Journal compaction failed", e);
+            return;
+        }
+
+        long toSkip = Math.max(0L, unacked - maxBytes);
+        long droppedThrough = ackedSeq;
+        File tmp = new File(journalFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp, false);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry = parse(line);
+                if (entry == null || entry.seq <= ackedSeq) continue;
+                if (toSkip > 0L) {
+                    toSkip -= line.length() + 1;
+                    droppedThrough = entry.seq;
+                    dropped++;
+                    continue;
+                }
+                out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                kept++;
+            }
+            out.getFD().sync();
+        } catch (IOException e) {
+            AppLog.e(TAG, "❌ Journal compaction failed", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(journalFile)) {
+            AppLog.e(TAG, "❌ Could not replace journal after compaction");
+            tmp.delete();
+            return;
+        }
+        if (dropped > 0L) {
+            // the dropped entries are gone for good: let the acknowledged prefix move past them
+            AppLog.w(TAG, "⚠️ Journal full, dropped {} oldest unsent log records", dropped);
+            ackedAhead.merge(ackedSeq + 1, droppedThrough, Math::max);
+            advanceAck();
+            writeAck();
+        }
+        AppLog.d(TAG, "🧹 Compacted journal to {} entries", kept);
+    }
+
+    // drop a torn trailing line left by a crash mid-append; returns the last sequence on disk.
+    // Streams the file so memory use does not grow with the journal.
+    private long recover() {
+        if (!journalFile.exists()) return 0L;
+        long completeBytes = 0L;
+        long total = 0L;
+        byte[] lastLine = null;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(journalFile))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                total++;
+                if (b == '\n') {
+                    completeBytes = total;
+                    lastLine = line.toByteArray();
+                    line.reset();
+                } else {
+                    line.write(b);
+                }
+            }
+        } catch (IOException e) {
+            AppLog.e(TAG, "❌ Journal recovery failed", e);
+            return 0L;
+        }
+
+        if (completeBytes < total) {
+            AppLog.w(TAG, "⚠️ Truncating torn journal tail ({} bytes)", total - completeBytes);
+            try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+                raf.setLength(completeBytes);
+            } catch (IOException e) {
+                AppLog.e(TAG, "❌ Journal recovery failed", e);
+            }
+        }
+        if (lastLine == null) return 0L;
+        Entry last = parse(new String(lastLine, StandardCharsets.UTF_8));
+        return last != null ? last.seq : 0L;
+    }
+
+    private long readAck() {
+        try {
+            byte[] bytes = ackFile.readFully();
+            return Long.parseLong(new String(bytes, StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private void writeAck() {
+        FileOutputStream out = null;
+        try {
+            out = ackFile.startWrite();
+            out.write(Long.toString(ackedSeq).getBytes(StandardCharsets.UTF_8));
+            ackFile.finishWrite(out);
+        } catch (IOException e) {
+            AppLog.e(TAG, "❌ Failed to persist journal ack", e);
+            if (out != null) ackFile.failWrite(out);
+        }
+    }
+
+    private static Entry parse(String line) {
+        try {
+            JSONObject json = new JSONObject(line);
+            JSONObject data = json.getJSONObject("data");
+            Map<String, Object> map = new HashMap<>();
+            Iterator<String> keys = data.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                Object value = data.get(key);
+                // org.json narrows small numbers to Integer; every numeric log field is a long
+                if (value instanceof Number) value = ((Number) value).longValue();
+                if (value == JSONObject.NULL) value = null;
+                map.put(key, value);
+            }
+            return new Entry(json.getLong("seq"), json.getString("id"), map);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+}
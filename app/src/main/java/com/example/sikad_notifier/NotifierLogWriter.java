@@ -0,0 +1,279 @@
+package com.example.sikad_notifier;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buffers notifier_logs records and commits them in batches.
+ *
+ * Records are flushed when the buffer reaches {@link #MAX_BATCH_SIZE} (Firestore's per-batch
+ * operation limit) or {@code flushDelayMs} after the first buffered record, whichever comes
+ * first, so an alert storm turns into a handful of commits instead of one write per alert.
+ * The buffer is only touched on the writer's own thread; counters are safe to read anywhere.
+ *
+ * Every record goes through {@link NotifierLogJournal} before it is buffered and is written to
+ * the document id the caller derived from its alert, so a failed batch is left for
+ * {@link NotifierLogDrainWorker} to replay instead of being lost.
+ *
+ * Writes are create-only ({@link #commitCreateOnly}): every admin device logs the alerts it
+ * receives, but only the first copy of a record is written. Later copies, replays and late
+ * duplicates are skipped, so they never reset a log that was resolved in the meantime and the
+ * write count stays one per alert however many devices are logged in. The one exception is a
+ * document that only holds a resolution ({@link AlertResolver} got there first): the record is
+ * merged into it without its own {@code resolved} field.
+ */
+public class NotifierLogWriter {
+
+    private static final String TAG = "NotifierLogWriter";
+
+    public static final int MAX_BATCH_SIZE = 500;
+
+    private final Context context;
+    private final CollectionReference logs;
+    private final FirebaseFirestore db;
+    private final NotifierLogJournal journal;
+    // longer while an alert storm lasts, so batches fill up instead of committing every few seconds
+    private volatile long flushDelayMs;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    private List<NotifierLogJournal.Entry> buffer = new ArrayList<>();
+    private ScheduledFuture<?> pendingFlush;
+    private int inFlight = 0;
+    private boolean closing = false;
+
+    // counters
+    private final AtomicLong batchesCommitted = new AtomicLong();
+    private final AtomicLong recordsCommitted = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong failedRecords = new AtomicLong();
+    private final AtomicLong lastBatchSize = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final AtomicLong lastFlushLatencyMs = new AtomicLong();
+    private final AtomicLong totalFlushLatencyMs = new AtomicLong();
+    private final MetricsRegistry.Histogram ackLatency = MetricsRegistry.get().histogram(MetricsRegistry.LOG_ACK);
+    private final MetricsRegistry.Counter acked = MetricsRegistry.get().counter(MetricsRegistry.LOGS_ACKED);
+
+    public NotifierLogWriter(Context context, FirebaseFirestore db, long flushDelayMs) {
+        this.context = context.getApplicationContext();
+        this.db = db;
+        this.journal = NotifierLogJournal.get(context);
+        this.logs = db.collection("notifier_logs");
+        this.flushDelayMs = flushDelayMs;
+    }
+
+    // docId is derived from the alert, so writing the same alert twice (or from two devices) is a no-op;
+    // onJournaled runs on the writer thread once the record is durable on this device
+    public void enqueue(String docId, Map<String, Object> record, Runnable onJournaled) {
+        executor.execute(() -> {
+            buffer.add(journalEntry(docId, record));
+            if (onJournaled != null) onJournaled.run();
+            if (buffer.size() >= MAX_BATCH_SIZE) {
+                flushBuffer();
+            } else if (pendingFlush == null) {
+                pendingFlush = executor.schedule(this::flushBuffer, flushDelayMs, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    // runs on the writer thread once every record enqueued so far is journaled, so work that must
+    // follow those records (marking alerts processed) happens in journal order
+    public void afterJournaled(Runnable action) {
+        try {
+            executor.execute(action);
+        } catch (RejectedExecutionException e) {
+            action.run(); // shut down: everything before it has been journaled
+        }
+    }
+
+    public void flush() {
+        executor.execute(this::flushBuffer);
+    }
+
+    // wait until every record enqueued so far has been journaled; false on timeout
+    public boolean awaitJournaled(long timeoutMs) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            executor.execute(done::countDown);
+        } catch (RejectedExecutionException e) {
+            return true; // shut down: nothing more will be journaled
+        }
+        return done.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    // applies from the next batch; a flush already scheduled keeps its delay
+    public void setFlushDelay(long flushDelayMs) {
+        this.flushDelayMs = flushDelayMs;
+    }
+
+    // flush whatever is buffered and stop once the in-flight commits have settled
+    public void shutdown() {
+        executor.execute(() -> {
+            flushBuffer();
+            closing = true;
+            if (inFlight == 0) executor.shutdown();
+        });
+    }
+
+    private NotifierLogJournal.Entry journalEntry(String docId, Map<String, Object> record) {
+        try {
+            return journal.append(docId, record);
+        } catch (IOException e) {
+            // still send it, just without a durable copy (seq 0 is never acknowledged)
+            AppLog.e(TAG, "❌ Failed to journal log record", e);
+            return new NotifierLogJournal.Entry(0L, docId, record);
+        }
+    }
+
+    private void flushBuffer() {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        if (buffer.isEmpty()) return;
+
+        List<NotifierLogJournal.Entry> entries = buffer;
+        buffer = new ArrayList<>();
+
+        long firstSeq = Long.MAX_VALUE;
+        long lastSeq = 0L;
+        for (NotifierLogJournal.Entry entry : entries) {
+            if (entry.seq > 0) {
+                firstSeq = Math.min(firstSeq, entry.seq);
+                lastSeq = Math.max(lastSeq, entry.seq);
+            }
+        }
+
+        final int size = entries.size();
+        final long ackFrom = firstSeq;
+        final long ackTo = lastSeq;
+        final long startedAt = SystemClock.elapsedRealtime();
+        inFlight++;
+        commitCreateOnly(db, logs, entries)
+                .addOnSuccessListener(executor, unused -> {
+                    long latency = SystemClock.elapsedRealtime() - startedAt;
+                    batchesCommitted.incrementAndGet();
+                    recordsCommitted.addAndGet(size);
+                    lastBatchSize.set(size);
+                    maxBatchSize.accumulateAndGet(size, Math::max);
+                    lastFlushLatencyMs.set(latency);
+                    totalFlushLatencyMs.addAndGet(latency);
+                    if (ackTo > 0) journal.acknowledge(ackFrom, ackTo);
+                    recordAcks(entries);
+                    AppLog.d(TAG, "✅ Committed {} logs in {} ms", size, latency);
+                })
+                .addOnFailureListener(executor, err -> {
+                    failedBatches.incrementAndGet();
+                    failedRecords.addAndGet(size);
+                    AppLog.e(TAG, "❌ Failed to commit {} logs, leaving them to the drain worker", size, err);
+                    NotifierLogDrainWorker.enqueueUrgent(context);
+                })
+                .addOnCompleteListener(executor, task -> {
+                    inFlight--;
+                    if (closing && inFlight == 0) executor.shutdown();
+                });
+    }
+
+    // one transaction: read every target first, then create only the records that do not exist yet
+    static Task<Void> commitCreateOnly(FirebaseFirestore db, CollectionReference logs,
+                                       List<NotifierLogJournal.Entry> entries) {
+        // the same alert can be journaled twice (replay after a restart); the first copy wins
+        Map<String, NotifierLogJournal.Entry> byDoc = new LinkedHashMap<>();
+        for (NotifierLogJournal.Entry entry : entries) byDoc.putIfAbsent(entry.docId, entry);
+        return db.runTransaction(tx -> {
+            List<DocumentReference> missing = new ArrayList<>();
+            List<DocumentReference> resolvedEarly = new ArrayList<>();
+            for (String docId : byDoc.keySet()) {
+                DocumentReference ref = logs.document(docId);
+                DocumentSnapshot existing = tx.get(ref);
+                if (!existing.exists()) {
+                    missing.add(ref);
+                } else if (!existing.contains("timestamp")) {
+                    resolvedEarly.add(ref);
+                }
+            }
+            for (DocumentReference ref : missing) tx.set(ref, byDoc.get(ref.getId()).data);
+            for (DocumentReference ref : resolvedEarly) {
+                Map<String, Object> data = new HashMap<>(byDoc.get(ref.getId()).data);
+                data.remove("resolved");
+                tx.set(ref, data, SetOptions.merge());
+            }
+            return null;
+        });
+    }
+
+    // time from each alert being raised to its log record being acknowledged
+    private void recordAcks(List<NotifierLogJournal.Entry> entries) {
+        long now = System.currentTimeMillis();
+        for (NotifierLogJournal.Entry entry : entries) {
+            Object timestamp = entry.data.get("timestamp");
+            if (timestamp instanceof Number) ackLatency.record(now - ((Number) timestamp).longValue());
+        }
+        acked.add(entries.size());
+    }
+
+    public long getBatchesCommitted() {
+        return batchesCommitted.get();
+    }
+
+    public long getRecordsCommitted() {
+        return recordsCommitted.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    public long getFailedRecords() {
+        return failedRecords.get();
+    }
+
+    public long getLastBatchSize() {
+        return lastBatchSize.get();
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    public long getLastFlushLatencyMs() {
+        return lastFlushLatencyMs.get();
+    }
+
+    public long getAverageFlushLatencyMs() {
+        long batches = batchesCommitted.get();
+        return batches == 0 ? 0 : totalFlushLatencyMs.get() / batches;
+    }
+
+    @Override
+    public String toString() {
+        return "batches=" + getBatchesCommitted()
+                + " records=" + getRecordsCommitted()
+                + " failedBatches=" + getFailedBatches()
+                + " failedRecords=" + getFailedRecords()
+                + " lastBatch=" + getLastBatchSize()
+                + " maxBatch=" + getMaxBatchSize()
+                + " lastFlushMs=" + getLastFlushLatencyMs()
+                + " avgFlushMs=" + getAverageFlushLatencyMs();
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.sikad_notifier;
+
+import android.os.Process;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * One stage of the alert processing pipeline: a bounded queue drained by a dedicated
+ * background thread.
+ *
+ * When the queue is full, {@link Backpressure} decides whether the producer waits, the oldest
+ * queued item is evicted, or the new item is rejected; an UNBOUNDED stage never makes its
+ * producer wait. The stage counts submitted, processed and dropped items and tracks queue depth
+ * and enqueue-to-done latency.
+ */
+public class PipelineStage<T> {
+
+    private static final String TAG = "PipelineStage";
+
+    public enum Backpressure {
+        BLOCK,       // producer waits for room; nothing is lost
+        DROP_OLDEST, // evict the oldest queued item; newest state wins
+        DROP_NEWEST, // reject the incoming item
+        UNBOUNDED    // no capacity limit; for producers that must never wait (Firestore's callback thread)
+    }
+
+    private static final class Envelope<T> {
+        final T item;
+        final long enqueuedAtNanos;
+
+        Envelope(T item, long enqueuedAtNanos) {
+            this.item = item;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+        }
+    }
+
+    private final String name;
+    private final Backpressure backpressure;
+    private final Consumer<T> handler;
+    private final Runnable onIdle;
+    private final BlockingQueue<Envelope<T>> queue;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    // counters
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong maxDepth = new AtomicLong();
+    private final AtomicLong lastLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+    public PipelineStage(String name, int capacity, Backpressure backpressure,
+                         Consumer<T> handler, Runnable onIdle) {
+        this.name = name;
+        this.backpressure = backpressure;
+        this.handler = handler;
+        this.onIdle = onIdle;
+        this.queue = backpressure == Backpressure.UNBOUNDED
+                ? new LinkedBlockingQueue<>() : new ArrayBlockingQueue<>(capacity);
+        this.worker = new Thread(this::drain, "alert-" + name);
+        this.worker.start();
+    }
+
+    public PipelineStage(String name, int capacity, Backpressure backpressure, Consumer<T> handler) {
+        this(name, capacity, backpressure, handler, null);
+    }
+
+    public void submit(T item) {
+        if (!running) return;
+        Envelope<T> envelope = new Envelope<>(item, System.nanoTime());
+        submitted.incrementAndGet();
+
+        switch (backpressure) {
+            case BLOCK:
+            case UNBOUNDED:
+                try {
+                    queue.put(envelope);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                    return;
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(envelope)) {
+                    if (queue.poll() != null) dropped.incrementAndGet();
+                }
+                break;
+            case DROP_NEWEST:
+                if (!queue.offer(envelope)) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                break;
+        }
+        maxDepth.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void drain() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        while (running) {
+            Envelope<T> envelope;
+            try {
+                envelope = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                handler.accept(envelope.item);
+                processed.incrementAndGet();
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                AppLog.e(TAG, "❌ Stage {} failed on item", name, e);
+            }
+
+            long latency = System.nanoTime() - envelope.enqueuedAtNanos;
+            lastLatencyNanos.set(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            totalLatencyNanos.addAndGet(latency);
+
+            if (onIdle != null && queue.isEmpty()) onIdle.run();
+        }
+    }
+
+    // everything submitted so far has been handled or dropped
+    public boolean isIdle() {
+        return submitted.get() == processed.get() + failed.get() + dropped.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getDepth() {
+        return queue.size();
+    }
+
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getLastLatencyMicros() {
+        return lastLatencyNanos.get() / 1000;
+    }
+
+    public long getMaxLatencyMicros() {
+        return maxLatencyNanos.get() / 1000;
+    }
+
+    public long getAverageLatencyMicros() {
+        long done = processed.get() + failed.get();
+        return done == 0 ? 0 : totalLatencyNanos.get() / done / 1000;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{depth=" + getDepth() + " maxDepth=" + getMaxDepth()
+                + " in=" + getSubmitted() + " out=" + getProcessed()
+                + " dropped=" + getDropped() + " failed=" + getFailed()
+                + " lastUs=" + getLastLatencyMicros() + " avgUs=" + getAverageLatencyMicros()
+                + " maxUs=" + getMaxLatencyMicros() + "}";
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.sikad_notifier;
+
+import android.content.Context;
+import android.util.AtomicFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Persistent record of alert ids this device has already processed.
+ *
+ * The most recent {@link #RECENT_CAPACITY} ids are kept exactly (insertion-ordered, oldest
+ * evicted first); every id also goes into a two-generation bloom filter that remembers far more
+ * history in a fixed 16 KB. The exact set is always trusted; the bloom filter, which can report
+ * false positives, is only consulted for alerts already behind the watermark, so a false
+ * positive can only ever swallow an out-of-order straggler, never a fresh alert.
+ *
+ * Everything lives in one small file rewritten by {@link #commit()}, so replays after a restart,
+ * a reconnect or a cache-served snapshot are recognised at O(1) cost. The dedupe stage adds ids;
+ * {@link #commit()} may run on any thread, one write at a time.
+ */
+public class ProcessedAlertFilter {
+
+    private static final String TAG = "ProcessedAlertFilter";
+
+    private static final String FILE_NAME = "processed_alerts.bin";
+    private static final int FORMAT_VERSION = 1;
+
+    static final int RECENT_CAPACITY = 1024;
+    // 64 Kbit per generation, 5 probes: ~0.7% false positives per full generation
+    private static final int BLOOM_BITS = 1 << 16;
+    private static final int BLOOM_HASHES = 5;
+    static final int GENERATION_CAPACITY = 6000;
+
+    private final AtomicFile file;
+    // held across snapshot and write so two commits never interleave on the file (or its backup),
+    // and a newer snapshot is never overwritten by an older one
+    private final Object writeLock = new Object();
+
+    private final LinkedHashSet<String> recent = new LinkedHashSet<>();
+    // current generation takes inserts; the previous one is still queried until the next rotation
+    private long[] current = new long[BLOOM_BITS / 64];
+    private long[] previous = new long[BLOOM_BITS / 64];
+    private int currentCount = 0;
+    private boolean dirty = false;
+
+    private long exactHits = 0L;
+    private long approximateHits = 0L;
+
+    public ProcessedAlertFilter(Context context) {
+        file = new AtomicFile(new File(context.getFilesDir(), FILE_NAME));
+        load();
+    }
+
+    // true if alertId was processed before; behindWatermark allows the approximate (bloom) answer
+    public synchronized boolean isProcessed(String alertId, boolean behindWatermark) {
+        if (recent.contains(alertId)) {
+            exactHits++;
+            return true;
+        }
+        if (behindWatermark && mightContain(alertId)) {
+            approximateHits++;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void add(String alertId) {
+        if (!recent.add(alertId)) return;
+        if (recent.size() > RECENT_CAPACITY) {
+            Iterator<String> oldest = recent.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+
+        if (currentCount >= GENERATION_CAPACITY) {
+            long[] recycled = previous;
+            Arrays.fill(recycled, 0L);
+            previous = current;
+            current = recycled;
+            currentCount = 0;
+        }
+        long h = hash(alertId);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & (BLOOM_BITS - 1);
+            current[bit >>> 6] |= 1L << bit;
+        }
+        currentCount++;
+        dirty = true;
+    }
+
+    private boolean mightContain(String alertId) {
+        long h = hash(alertId);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        return probe(current, h1, h2) || probe(previous, h1, h2);
+    }
+
+    private static boolean probe(long[] bits, int h1, int h2) {
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & (BLOOM_BITS - 1);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0L) return false;
+        }
+        return true;
+    }
+
+    // FNV-1a over the UTF-16 chars, finished with the murmur3 mixer
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // write the filter to disk if anything was added; called alongside the watermark commit
+    public void commit() {
+        synchronized (writeLock) {
+            byte[] bytes;
+            synchronized (this) {
+                if (!dirty) return;
+                bytes = serialize();
+                dirty = false;
+            }
+            FileOutputStream out = null;
+            try {
+                out = file.startWrite();
+                out.write(bytes);
+                file.finishWrite(out);
+            } catch (IOException e) {
+                AppLog.e(TAG, "❌ Failed to persist processed alerts", e);
+                if (out != null) file.failWrite(out);
+                synchronized (this) {
+                    dirty = true;
+                }
+            }
+        }
+    }
+
+    private byte[] serialize() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(2 * BLOOM_BITS / 8 + 24 * recent.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(currentCount);
+            for (long word : current) out.writeLong(word);
+            for (long word : previous) out.writeLong(word);
+            out.writeInt(recent.size());
+            for (String id : recent) out.writeUTF(id);
+        } catch (IOException e) {
+            // in-memory stream, cannot happen
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void load() {
+        byte[] bytes;
+        try {
+            bytes = file.readFully();
+        } catch (IOException e) {
+            return; // first run
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != FORMAT_VERSION) return;
+            int count = in.readInt();
+            long[] cur = new long[BLOOM_BITS / 64];
+            long[] prev = new long[BLOOM_BITS / 64];
+            for (int i = 0; i < cur.length; i++) cur[i] = in.readLong();
+            for (int i = 0; i < prev.length; i++) prev[i] = in.readLong();
+            int ids = in.readInt();
+            for (int i = 0; i < ids; i++) recent.add(in.readUTF());
+            current = cur;
+            previous = prev;
+            currentCount = count;
+            AppLog.d(TAG, "📂 Loaded {} recent processed alerts", recent.size());
+        } catch (IOException e) {
+            // a damaged file only costs possible duplicates, never a missed alert
+            AppLog.w(TAG, "⚠️ Discarding unreadable processed-alert file", e);
+            recent.clear();
+        }
+    }
+
+    // forget everything (logout) so the next session starts clean
+    public static void clear(Context context) {
+        new AtomicFile(new File(context.getFilesDir(), FILE_NAME)).delete();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ProcessedAlertFilter{recent=" + recent.size() + " bloomCount=" + currentCount
+                + " exactHits=" + exactHits + " approximateHits=" + approximateHits + "}";
+    }
+}
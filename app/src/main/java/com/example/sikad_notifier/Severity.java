@@ -0,0 +1,44 @@
+package com.example.sikad_notifier;
+
+/**
+ * How urgent an alert is, and everything that follows from it: the notification channel, how
+ * often it may sound, whether and for how long it is coalesced per bike, and the {@code type}
+ * recorded in notifier_logs. Assigned by {@link AlertClassifier}.
+ *
+ * Critical alerts are never coalesced or paced behind other notifications: each one gets its own
+ * notification and sound, ahead of whatever else is queued.
+ */
+public enum Severity {
+
+    //        log type     channel                                          sound throttle  coalesce window
+    CRITICAL("critical", NotificationChannelManager.CHANNEL_ID_CRITICAL, 0L, 0L),
+    HIGH("high", NotificationChannelManager.CHANNEL_ID_HIGH, 3_000L, 60_000L),
+    NORMAL("normal", NotificationChannelManager.CHANNEL_ID_ALERT, 3_000L, 60_000L),
+    LOW("low", NotificationChannelManager.CHANNEL_ID_LOW, 5 * 60_000L, 10 * 60_000L);
+
+    public final String logType;
+    public final String channelId;
+    // minimum time between two sounds for alerts of this severity
+    public final long soundThrottleMs;
+    // per-bike coalescing window; 0 means every alert gets its own notification
+    public final long coalesceWindowMs;
+
+    Severity(String logType, String channelId, long soundThrottleMs, long coalesceWindowMs) {
+        this.logType = logType;
+        this.channelId = channelId;
+        this.soundThrottleMs = soundThrottleMs;
+        this.coalesceWindowMs = coalesceWindowMs;
+    }
+
+    public boolean isCoalesced() {
+        return coalesceWindowMs > 0L;
+    }
+
+    // AlertSoundPlayer plays the sound: critical's channel has a sound of its own, low is shade-only
+    public boolean usesSoundPlayer() {
+        return this == HIGH || this == NORMAL;
+    }
+
+    // cached, values() clones the array on every call
+    static final Severity[] ALL = values();
+}
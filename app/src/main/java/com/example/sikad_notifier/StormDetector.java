@@ -0,0 +1,166 @@
+package com.example.sikad_notifier;
+
+import java.util.BitSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects alert storms (a backend incident, a fleet-wide firmware glitch) from the rate of new
+ * alerts, with hysteresis so the engine does not flap between modes.
+ *
+ * Alerts are counted in fixed windows of {@link #WINDOW_MS}. A storm starts as soon as one window
+ * reaches {@link #ENTER_COUNT} alerts, and ends only after {@link #CALM_WINDOWS_TO_EXIT}
+ * consecutive windows at or below {@link #EXIT_COUNT}. While a storm lasts, a timer closes
+ * windows even when nothing arrives, and reports progress once per window so the caller can
+ * keep one rolling summary up to date. The distinct bikes involved are tracked in a bit set over
+ * {@link BikeStateTable} handles, so memory stays fixed however large the storm.
+ */
+public class StormDetector {
+
+    static final long WINDOW_MS = 5_000L;
+    // 20 alerts/s sustained over a window
+    static final int ENTER_COUNT = 100;
+    // back under 2 alerts/s ...
+    static final int EXIT_COUNT = 10;
+    // ... for 30 seconds
+    static final int CALM_WINDOWS_TO_EXIT = 6;
+
+    public interface Listener {
+        void onStormStarted(Stats stats);
+
+        void onStormProgress(Stats stats);
+
+        void onStormEnded(Stats stats);
+    }
+
+    /**
+     * Snapshot of the current storm.
+     */
+    public static final class Stats {
+        public final long startedAt;
+        public final long alerts;
+        public final int bikes;
+        public final int lastWindowCount;
+
+        Stats(long startedAt, long alerts, int bikes, int lastWindowCount) {
+            this.startedAt = startedAt;
+            this.alerts = alerts;
+            this.bikes = bikes;
+            this.lastWindowCount = lastWindowCount;
+        }
+    }
+
+    private final Listener listener;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    // guarded by this
+    private long windowStart = 0L;
+    private int windowCount = 0;
+    private boolean storming = false;
+    private int calmWindows = 0;
+    private long stormStartedAt = 0L;
+    private long stormAlerts = 0L;
+    // bikes seen in the current window, or since the storm started
+    private final BitSet bikes = new BitSet(BikeStateTable.CAPACITY);
+    private ScheduledFuture<?> tick;
+    // set by rollWindows when it ends a storm, taken by the caller to report
+    private Stats endedStats;
+
+    private volatile boolean stormActive = false;
+    private long storms = 0L;
+
+    public StormDetector(Listener listener) {
+        this.listener = listener;
+    }
+
+    public boolean isStorming() {
+        return stormActive;
+    }
+
+    // count one new alert (route stage); bikeHandle may be -1
+    public void record(int bikeHandle, long now) {
+        Stats started = null;
+        Stats ended = null;
+        synchronized (this) {
+            rollWindows(now);
+            ended = takeEnded();
+            windowCount++;
+            if (bikeHandle >= 0) bikes.set(bikeHandle);
+            if (storming) {
+                stormAlerts++;
+            } else if (windowCount >= ENTER_COUNT) {
+                storming = true;
+                stormActive = true;
+                storms++;
+                calmWindows = 0;
+                stormStartedAt = now;
+                stormAlerts = windowCount;
+                tick = timer.scheduleAtFixedRate(this::onTick, WINDOW_MS, WINDOW_MS, TimeUnit.MILLISECONDS);
+                started = stats(windowCount);
+            }
+        }
+        if (ended != null) listener.onStormEnded(ended);
+        if (started != null) listener.onStormStarted(started);
+    }
+
+    private void onTick() {
+        Stats progress = null;
+        Stats ended = null;
+        synchronized (this) {
+            if (!storming) return;
+            int lastCount = rollWindows(System.currentTimeMillis());
+            ended = takeEnded();
+            if (storming) progress = stats(lastCount);
+        }
+        if (ended != null) listener.onStormEnded(ended);
+        if (progress != null) listener.onStormProgress(progress);
+    }
+
+    // close every window that has ended by now; returns the count of the last closed one
+    private int rollWindows(long now) {
+        if (windowStart == 0L) windowStart = now;
+        int lastClosed = windowCount;
+        while (now - windowStart >= WINDOW_MS) {
+            lastClosed = windowCount;
+            if (storming) {
+                calmWindows = windowCount <= EXIT_COUNT ? calmWindows + 1 : 0;
+                if (calmWindows >= CALM_WINDOWS_TO_EXIT) {
+                    endedStats = stats(windowCount);
+                    storming = false;
+                    stormActive = false;
+                    if (tick != null) tick.cancel(false);
+                    tick = null;
+                }
+            }
+            windowCount = 0;
+            if (!storming) bikes.clear();
+            windowStart += WINDOW_MS;
+            // after a long quiet gap, jump straight to the current window (a storm has ended by then)
+            if (!storming && now - windowStart >= WINDOW_MS) {
+                windowStart = now - (now - windowStart) % WINDOW_MS;
+            }
+        }
+        return lastClosed;
+    }
+
+    private Stats takeEnded() {
+        Stats stats = endedStats;
+        endedStats = null;
+        return stats;
+    }
+
+    private Stats stats(int lastWindowCount) {
+        return new Stats(stormStartedAt, stormAlerts, bikes.cardinality(), lastWindowCount);
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StormDetector{storming=" + storming + " storms=" + storms + " alerts=" + stormAlerts + "}";
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.sikad_notifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Several subscriptions supervised as one, e.g. the whereIn shards of a {@link MonitoringScope}.
+ *
+ * They share one {@link ListenerSupervisor}: any shard failing tears the group down and the
+ * supervisor resubscribes all of it, and every shard feeds the same snapshot listener.
+ */
+public class SubscriptionGroup implements ListenerSupervisor.Supervised {
+
+    private final List<ListenerSupervisor.Supervised> members;
+
+    public SubscriptionGroup(List<? extends ListenerSupervisor.Supervised> members) {
+        this.members = new ArrayList<>(members);
+    }
+
+    @Override
+    public void start() {
+        for (ListenerSupervisor.Supervised member : members) member.start();
+    }
+
+    @Override
+    public void stop() {
+        for (ListenerSupervisor.Supervised member : members) member.stop();
+    }
+
+    public int size() {
+        return members.size();
+    }
+}
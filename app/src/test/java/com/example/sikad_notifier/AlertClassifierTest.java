@@ -0,0 +1,41 @@
+package com.example.sikad_notifier;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Severity rules: first match wins, matching ignores case, unmatched alerts are NORMAL.
+ */
+public class AlertClassifierTest {
+
+    private final AlertClassifier classifier = new AlertClassifier();
+
+    private static Alert alert(String message, String type) {
+        return new Alert("a1", "BIKE-7", message, 1700000000000L, type);
+    }
+
+    @Test
+    public void defaultRules_classifyByMessageAndType() {
+        assertEquals(Severity.CRITICAL, classifier.classify(alert("Possible THEFT detected", "")));
+        assertEquals(Severity.CRITICAL, classifier.classify(alert("", "Tamper")));
+        assertEquals(Severity.HIGH, classifier.classify(alert("Bike left geofence", "")));
+        assertEquals(Severity.LOW, classifier.classify(alert("Low battery (12%)", "")));
+        assertEquals(Severity.NORMAL, classifier.classify(alert("Parked outside station", "")));
+    }
+
+    @Test
+    public void firstMatchingRuleWins() {
+        AlertClassifier custom = new AlertClassifier(new String[]{
+                "bikeId ^ bike- -> LOW",
+                "message ~ theft -> CRITICAL",
+        });
+        assertEquals(Severity.LOW, custom.classify(alert("theft", "")));
+        assertEquals(2, custom.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedRule_isRejected() {
+        new AlertClassifier(new String[]{"colour = red -> CRITICAL"});
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.sikad_notifier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Push payload handling, driven by a fake message source instead of FCM.
+ */
+public class AlertMessageHandlerTest {
+
+    private final List<Alert> received = new ArrayList<>();
+    private AlertMessageHandler handler;
+
+    @Before
+    public void setUp() {
+        handler = new AlertMessageHandler(received::add);
+    }
+
+    private static Map<String, String> payload(String alertId, String bikeId, String message, String timestamp) {
+        Map<String, String> data = new HashMap<>();
+        if (alertId != null) data.put("alertId", alertId);
+        if (bikeId != null) data.put("bikeId", bikeId);
+        if (message != null) data.put("message", message);
+        if (timestamp != null) data.put("timestamp", timestamp);
+        return data;
+    }
+
+    @Test
+    public void validPayload_isDeliveredToSink() {
+        assertTrue(handler.handle(payload("a1", "BIKE-7", "Tamper detected", "1700000000000")));
+
+        assertEquals(1, received.size());
+        Alert alert = received.get(0);
+        assertEquals("a1", alert.id);
+        assertEquals("BIKE-7", alert.bikeId);
+        assertEquals("Tamper detected", alert.message);
+        assertEquals(1700000000000L, alert.timestamp);
+        assertEquals(1, handler.getAccepted());
+    }
+
+    @Test
+    public void missingOptionalFields_defaultToEmpty() {
+        assertTrue(handler.handle(payload("a2", null, null, "1")));
+
+        assertEquals("", received.get(0).bikeId);
+        assertEquals("", received.get(0).message);
+    }
+
+    @Test
+    public void invalidPayloads_areRejected() {
+        assertFalse(handler.handle(null));
+        assertFalse(handler.handle(payload(null, "BIKE-7", "m", "1700000000000")));
+        assertFalse(handler.handle(payload("", "BIKE-7", "m", "1700000000000")));
+        assertFalse(handler.handle(payload("a3", "BIKE-7", "m", null)));
+        assertFalse(handler.handle(payload("a3", "BIKE-7", "m", "yesterday")));
+        assertFalse(handler.handle(payload("a3", "BIKE-7", "m", "0")));
+
+        assertTrue(received.isEmpty());
+        assertEquals(6, handler.getRejected());
+    }
+}
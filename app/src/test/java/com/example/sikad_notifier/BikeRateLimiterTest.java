@@ -0,0 +1,78 @@
+package com.example.sikad_notifier;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Token buckets: burst, refill by alert time, suppressed counts per bike.
+ */
+public class BikeRateLimiterTest {
+
+    private static final long T0 = 1700000000000L;
+
+    @Test
+    public void burstIsAdmitted_thenSuppressedUntilRefill() {
+        BikeRateLimiter limiter = new BikeRateLimiter(3, 6); // one token per 10s
+
+        for (int i = 0; i < 3; i++) assertTrue(limiter.tryAcquire(0, T0 + i));
+        assertFalse(limiter.tryAcquire(0, T0 + 5));
+        assertFalse(limiter.tryAcquire(0, T0 + 9_000));
+        assertTrue(limiter.tryAcquire(0, T0 + 10_010));
+
+        assertEquals(2, limiter.drainSuppressed(0));
+        assertEquals(0, limiter.drainSuppressed(0));
+        assertEquals(2, limiter.getSuppressedTotal());
+    }
+
+    @Test
+    public void bikesHaveIndependentBuckets() {
+        BikeRateLimiter limiter = new BikeRateLimiter(1, 1);
+
+        assertTrue(limiter.tryAcquire(1, T0));
+        assertFalse(limiter.tryAcquire(1, T0));
+        assertTrue(limiter.tryAcquire(2, T0));
+    }
+
+    @Test
+    public void outOfOrderTimestamps_doNotRefill() {
+        BikeRateLimiter limiter = new BikeRateLimiter(1, 60);
+
+        assertTrue(limiter.tryAcquire(0, T0));
+        assertFalse(limiter.tryAcquire(0, T0 - 60_000));
+    }
+
+    @Test
+    public void alertsCloserThanOneMilliToken_stillRefill() {
+        BikeRateLimiter limiter = new BikeRateLimiter(1, 6); // 0.1 milli-tokens per ms
+
+        assertTrue(limiter.tryAcquire(0, T0));
+        long admittedAt = -1;
+        for (long t = T0 + 5; t <= T0 + 10_100 && admittedAt < 0; t += 5) {
+            if (limiter.tryAcquire(0, t)) admittedAt = t - T0;
+        }
+        assertTrue("admitted at " + admittedAt, admittedAt >= 10_000 && admittedAt <= 10_010);
+    }
+
+    @Test
+    public void quietBikes_areDrainedOnTheSecondTick() {
+        BikeRateLimiter limiter = new BikeRateLimiter(1, 1);
+        Map<Integer, Long> flushed = new HashMap<>();
+
+        for (int i = 0; i < 3; i++) limiter.tryAcquire(0, T0);
+        limiter.tryAcquire(1, T0);
+        limiter.tryAcquire(1, T0);
+        limiter.drainQuiet(2, flushed::put);
+        assertTrue(flushed.isEmpty());
+
+        limiter.tryAcquire(1, T0 + 1); // bike 1 is still flapping
+        limiter.drainQuiet(2, flushed::put);
+        assertEquals(1, flushed.size());
+        assertEquals(2L, (long) flushed.get(0));
+        assertEquals(0, limiter.drainSuppressed(0));
+        assertEquals(2, limiter.drainSuppressed(1));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.sikad_notifier;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Handles are dense and stable per bike; a full table rejects new bikes but keeps serving known ones.
+ */
+public class BikeStateTableTest {
+
+    private static final long T0 = 1700000000000L;
+
+    @Test
+    public void sameBike_keepsItsHandle() {
+        BikeStateTable table = new BikeStateTable();
+
+        int b1 = table.record("b1", T0);
+        int b2 = table.record("b2", T0);
+
+        assertEquals(0, b1);
+        assertEquals(1, b2);
+        assertEquals(b1, table.record("b1", T0 + 1));
+        assertEquals(b1, table.lookup("b1"));
+        assertEquals(-1, table.lookup("b3"));
+        assertEquals("b2", table.bikeId(b2));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void lastAlertTime_ignoresOlderAlerts() {
+        BikeStateTable table = new BikeStateTable();
+
+        int handle = table.record("b1", T0 + 10);
+        table.record("b1", T0);
+
+        assertEquals(T0 + 10, table.lastAlertTime(handle));
+    }
+
+    @Test
+    public void fullTable_rejectsNewBikesOnly() {
+        BikeStateTable table = new BikeStateTable();
+        for (int i = 0; i < BikeStateTable.CAPACITY; i++) {
+            assertEquals(i, table.intern("bike-" + i));
+        }
+
+        assertEquals(-1, table.record("one-too-many", T0));
+        assertEquals(1, table.rejectedCount());
+        assertEquals(BikeStateTable.CAPACITY, table.size());
+        assertEquals(7, table.record("bike-7", T0));
+    }
+}
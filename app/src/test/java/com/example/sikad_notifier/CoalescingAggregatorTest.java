@@ -0,0 +1,40 @@
+package com.example.sikad_notifier;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Per-bike windows: a bike keeps its notification id, expired bikes hand theirs back for reuse.
+ */
+public class CoalescingAggregatorTest {
+
+    private static final long T0 = 1700000000000L;
+    private static final long WINDOW = 60_000L;
+
+    @Test
+    public void newWindowForTrackedBike_keepsNotificationId() {
+        CoalescingAggregator aggregator = new CoalescingAggregator(WINDOW, 2000);
+
+        CoalescingAggregator.Window first = aggregator.record("b1", "a1", "m", 0L, T0);
+        CoalescingAggregator.Window second = aggregator.record("b1", "a2", "m", 0L, T0 + WINDOW + 1);
+
+        assertTrue(second.isNew());
+        assertEquals(first.notificationId, second.notificationId);
+    }
+
+    @Test
+    public void expiredBike_freesItsIdForTheNextBike() {
+        CoalescingAggregator aggregator = new CoalescingAggregator(WINDOW, 2000);
+
+        int quiet = aggregator.record("b1", "a1", "m", 0L, T0).notificationId;
+        aggregator.record("b2", "a2", "m", 0L, T0 + WINDOW + 1);
+
+        assertEquals(Collections.singletonList(quiet), aggregator.expire(T0 + WINDOW + 1));
+        assertEquals(1, aggregator.trackedBikes());
+        assertEquals(quiet, aggregator.record("b3", "a3", "m", 0L, T0 + WINDOW + 2).notificationId);
+        assertTrue(aggregator.expire(T0 + WINDOW + 2).isEmpty());
+    }
+}
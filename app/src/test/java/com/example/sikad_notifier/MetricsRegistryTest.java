@@ -0,0 +1,51 @@
+package com.example.sikad_notifier;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Histogram bucketing and percentiles, and the counter's one-minute rate.
+ */
+public class MetricsRegistryTest {
+
+    @Test
+    public void buckets_coverTheirValuesWithin12Percent() {
+        for (long v = 0; v < 100_000; v += 7) {
+            long upper = MetricsRegistry.Histogram.upperBound(MetricsRegistry.Histogram.bucketOf(v));
+            assertTrue(v + " -> " + upper, upper >= v);
+            assertTrue(v + " -> " + upper, upper - v <= v / 8);
+        }
+        long max = MetricsRegistry.Histogram.MAX_VALUE;
+        assertEquals(MetricsRegistry.Histogram.BUCKETS - 1, MetricsRegistry.Histogram.bucketOf(max));
+    }
+
+    @Test
+    public void percentiles_followTheDistribution() {
+        MetricsRegistry.Histogram h = new MetricsRegistry.Histogram();
+        assertEquals(0L, h.percentile(0.99));
+
+        for (int i = 1; i <= 1000; i++) h.record(i);
+        h.record(-5L); // clock skew counts as 0
+
+        assertEquals(1001L, h.getCount());
+        assertEquals(1000L, h.getMax());
+        assertEquals(500.0, h.percentile(0.50), 500 / 8.0);
+        assertEquals(950.0, h.percentile(0.95), 950 / 8.0);
+        assertEquals(990.0, h.percentile(0.99), 990 / 8.0);
+        assertTrue(h.percentile(0.99) <= h.getMax());
+    }
+
+    @Test
+    public void counterRate_onlyCoversTheLastMinute() {
+        MetricsRegistry.Counter c = new MetricsRegistry.Counter();
+        long t0 = 1_700_000_000_000L;
+        c.add(10L, t0);
+        c.add(5L, t0 + 30_000L);
+
+        assertEquals(15L, c.perMinute(t0 + 30_000L));
+        assertEquals(5L, c.perMinute(t0 + 70_000L));
+        assertEquals(0L, c.perMinute(t0 + 120_000L));
+        assertEquals(15L, c.get());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.sikad_notifier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Storm entry and exit with hysteresis, driven by explicit timestamps.
+ */
+public class StormDetectorTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private final List<String> events = new ArrayList<>();
+    private final StormDetector detector = new StormDetector(new StormDetector.Listener() {
+        @Override
+        public void onStormStarted(StormDetector.Stats stats) {
+            events.add("start " + stats.lastWindowCount);
+        }
+
+        @Override
+        public void onStormProgress(StormDetector.Stats stats) {
+        }
+
+        @Override
+        public void onStormEnded(StormDetector.Stats stats) {
+            events.add("end " + stats.alerts + " " + stats.bikes);
+        }
+    });
+
+    @After
+    public void tearDown() {
+        detector.shutdown();
+    }
+
+    // n alerts spread over one window starting at start, cycling through the given number of bikes
+    private void burst(long start, int n, int bikes) {
+        for (int i = 0; i < n; i++) {
+            detector.record(i % bikes, start + i * (StormDetector.WINDOW_MS - 1) / n);
+        }
+    }
+
+    @Test
+    public void belowThreshold_neverStorms() {
+        for (int w = 0; w < 10; w++) burst(T0 + w * StormDetector.WINDOW_MS, StormDetector.ENTER_COUNT - 1, 3);
+
+        assertFalse(detector.isStorming());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void storm_endsOnlyAfterConsecutiveCalmWindows() {
+        long w = StormDetector.WINDOW_MS;
+        burst(T0, StormDetector.ENTER_COUNT, 4);
+        assertTrue(detector.isStorming());
+        assertEquals("start " + StormDetector.ENTER_COUNT, events.get(0));
+
+        // calm windows interrupted by a busy one start the count over
+        long t = T0 + w;
+        for (int i = 0; i < StormDetector.CALM_WINDOWS_TO_EXIT - 1; i++, t += w) burst(t, 1, 1);
+        burst(t, StormDetector.EXIT_COUNT + 1, 1);
+        t += w;
+        for (int i = 0; i < StormDetector.CALM_WINDOWS_TO_EXIT; i++, t += w) burst(t, 1, 1);
+        assertTrue(detector.isStorming());
+
+        // the next window closes the last calm one
+        detector.record(0, t);
+        assertFalse(detector.isStorming());
+        long stormAlerts = StormDetector.ENTER_COUNT + 2 * StormDetector.CALM_WINDOWS_TO_EXIT + StormDetector.EXIT_COUNT;
+        assertEquals(List.of("start " + StormDetector.ENTER_COUNT, "end " + stormAlerts + " 4"), events);
+    }
+}